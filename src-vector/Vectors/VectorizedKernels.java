@@ -0,0 +1,153 @@
+package Vectors;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link DenseKernels} built on the incubating Vector API. Each loop processes as many
+ * lanes as the preferred species of the CPU holds and finishes the tail with scalar
+ * code. Kept in its own source root and only loaded reflectively by
+ * {@link DenseKernels#get()}, so the rest of the package compiles and runs without the
+ * <code>jdk.incubator.vector</code> module.
+ *
+ * Element-wise results are identical to {@link ScalarKernels}; reductions add the lanes
+ * in a different order and may differ in the last bits.
+ */
+class VectorizedKernels extends DenseKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    void add(double[] a, double[] b, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, i);
+            va.add(vb).intoArray(out, i);
+        }
+        for (; i < to; i++)
+            out[i] = a[i] + b[i];
+    }
+
+    @Override
+    void add(double[] a, double scalar, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).add(scalar).intoArray(out, i);
+        for (; i < to; i++)
+            out[i] = a[i] + scalar;
+    }
+
+    @Override
+    void subtract(double[] a, double[] b, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, i);
+            va.sub(vb).intoArray(out, i);
+        }
+        for (; i < to; i++)
+            out[i] = a[i] - b[i];
+    }
+
+    @Override
+    void multiply(double[] a, double[] b, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, i);
+            va.mul(vb).intoArray(out, i);
+        }
+        for (; i < to; i++)
+            out[i] = a[i] * b[i];
+    }
+
+    @Override
+    void multiply(double[] a, double scalar, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).mul(scalar).intoArray(out, i);
+        for (; i < to; i++)
+            out[i] = a[i] * scalar;
+    }
+
+    @Override
+    void divide(double[] a, double[] b, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, i);
+            va.div(vb).intoArray(out, i);
+        }
+        for (; i < to; i++)
+            out[i] = a[i] / b[i];
+    }
+
+    @Override
+    void divide(double[] a, double scalar, double[] out, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length())
+            DoubleVector.fromArray(SPECIES, a, i).div(scalar).intoArray(out, i);
+        for (; i < to; i++)
+            out[i] = a[i] / scalar;
+    }
+
+    @Override
+    void axpy(double scalar, double[] x, double[] y, int from, int to) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, i);
+            vy.add(vx.mul(scalar)).intoArray(y, i);
+        }
+        for (; i < to; i++)
+            y[i] += scalar * x[i];
+    }
+
+    @Override
+    double dot(double[] a, double[] b, int from, int to) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, i);
+            acc = acc.add(va.mul(vb));
+        }
+        double dotProduct = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++)
+            dotProduct += a[i] * b[i];
+        return dotProduct;
+    }
+
+    @Override
+    double sum(double[] a, int from, int to) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length())
+            acc = acc.add(DoubleVector.fromArray(SPECIES, a, i));
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    @Override
+    double sumOfSquares(double[] a, int from, int to) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, i);
+            acc = acc.add(va.mul(va));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++)
+            sum += a[i] * a[i];
+        return sum;
+    }
+}
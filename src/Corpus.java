@@ -3,35 +3,45 @@ import Vectors.FeatureMatrix;
 import Vectors.FeatureVector;
 
 import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 
+/**
+ * A collection of tokenized documents and their vectors. The vectors are stored only
+ * once, as the rows of a compressed-row feature matrix; a <code>Document</code> is
+ * assembled from its text and its row when it is asked for.
+ */
 public class Corpus extends AbstractCollection<FeatureVector> {
 
     private FeatureMatrix featureMatrix;
-    private LinkedList<Document> documents;
+    private ArrayList<String[]> texts;
     private FeatureExtractor extractor;
 
     public Corpus(Iterable<String[]> collection, FeatureExtractor extractor) {
-        LinkedList<FeatureVector> matrix = new LinkedList<>();
+        FeatureMatrix.CsrBuilder matrix = new FeatureMatrix.CsrBuilder(extractor.featureCount());
         this.extractor = extractor;
-        documents = new LinkedList<>();
-        Document currentDocument;
+        texts = new ArrayList<>();
 
         for (String[] tokens : collection) {
-            currentDocument = new Document(tokens, extractor);
-            matrix.add(currentDocument.getVector());
-            documents.add(currentDocument);
+            matrix.addRow(extractor.vectorize(tokens));
+            texts.add(tokens);
         }
 
-        featureMatrix = new FeatureMatrix(matrix);
+        featureMatrix = matrix.build();
     }
 
     public FeatureMatrix getFeatureMatrix() {
         return featureMatrix;
     }
 
+    /**
+     * @return a new list of the documents, each backed by its row of the feature matrix
+     */
     public LinkedList<Document> getDocuments() {
+        LinkedList<Document> documents = new LinkedList<>();
+        for (int i = 0; i < size(); i++)
+            documents.add(get(i));
         return documents;
     }
 
@@ -45,13 +55,13 @@ public class Corpus extends AbstractCollection<FeatureVector> {
     }
 
     public Document get(int i) {
-        if (i < 0 || i > documents.size())
+        if (i < 0 || i >= texts.size())
             throw new IndexOutOfBoundsException();
-        return documents.get(i);
+        return new Document(texts.get(i), extractor, featureMatrix.get(i));
     }
 
     @Override
     public int size() {
-        return documents.size();
+        return texts.size();
     }
 }
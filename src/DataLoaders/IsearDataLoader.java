@@ -5,49 +5,65 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
 
-public class IsearDataLoader implements Iterator<DataPoint> {
+/**
+ * Reads the ISEAR data set lazily: the file is kept open and one line is read per call
+ * to {@link #next()}, so memory use does not depend on the size of the corpus. Lines
+ * whose label is not one of the {@link #EMOTIONS} are skipped. The file is closed once
+ * the last point has been read, or by {@link #close()}.
+ */
+public class IsearDataLoader implements Iterator<DataPoint>, AutoCloseable {
 
-    private Iterator<DataPoint> it;
+    private final String path;
+    private BufferedReader reader;
+    private DataPoint nextPoint;
     private HashSet<String> validLabels;
     public static final String[] EMOTIONS = {
             "joy", "fear", "shame", "disgust",
             "guilt", "anger", "sadness"
     };
-    private int length;
+    private int length = -1;
 
     public IsearDataLoader(String path) {
+        this.path = path;
         validLabels = new HashSet<>();
         validLabels.addAll(Arrays.asList(EMOTIONS));
-        List<DataPoint> data = readCSV(path);
-        this.it = data.iterator();
-        length = data.size();
+        try {
+            reader = new BufferedReader(new FileReader(path));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        nextPoint = readPoint();
     }
 
-    private List<DataPoint> readCSV(String path) {
-        LinkedList<DataPoint> allPoints = new LinkedList<>();
+    /**
+     * Reads lines until one holds a valid data point.
+     * @return the next data point, or null at the end of the file
+     */
+    private DataPoint readPoint() {
+        if (reader == null)
+            return null;
         String line;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-
-            String[] sample;
-            String label;
-            String[] text;
-            while ((line = br.readLine()) != null) {
-
-                // use comma as separator
-                sample = line.split(",");
-                label = sample[0];
-                if (!validLabels.contains(label))
-                    continue;
-                sample = sample[1].toLowerCase().split(" ");
-                DataPoint point = new DataPoint(label, sample);
-                allPoints.add(point);
+        try {
+            while ((line = reader.readLine()) != null) {
+                DataPoint point = parse(line);
+                if (point != null)
+                    return point;
             }
-
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return allPoints;
+        close();
+        return null;
+    }
+
+    private DataPoint parse(String line) {
+        // use comma as separator
+        String[] sample = line.split(",");
+        String label = sample[0];
+        if (!validLabels.contains(label))
+            return null;
+        String[] text = sample[1].toLowerCase().split(" ");
+        return new DataPoint(label, text);
     }
 
     private void eliminateQuotes(String[] sample) {
@@ -61,15 +77,52 @@ public class IsearDataLoader implements Iterator<DataPoint> {
 
     @Override
     public boolean hasNext() {
-        return it.hasNext();
+        return nextPoint != null;
     }
 
     @Override
     public DataPoint next() {
-        return it.next();
+        if (nextPoint == null)
+            throw new NoSuchElementException();
+        DataPoint point = nextPoint;
+        nextPoint = readPoint();
+        return point;
     }
 
+    /**
+     * Counts the valid data points of the file. The first call reads the whole file
+     * once more, without keeping the points; the count is cached afterwards.
+     * @return the number of data points in the file
+     */
     public int size() {
+        if (length >= 0)
+            return length;
+        int count = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = br.readLine()) != null)
+                if (parse(line) != null)
+                    count++;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        length = count;
         return length;
     }
+
+    /**
+     * Closes the file. No further points are returned afterwards.
+     */
+    @Override
+    public void close() {
+        nextPoint = null;
+        if (reader == null)
+            return;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        reader = null;
+    }
 }
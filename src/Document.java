@@ -14,6 +14,16 @@ public class Document {
         this.vector = extractor.vectorize(text);
     }
 
+    /**
+     * Initializes a document whose text has already been vectorized, e.g. into a row of
+     * a <code>Corpus</code>'s feature matrix.
+     */
+    Document(String[] text, FeatureExtractor extractor, FeatureVector vector) {
+        this.extractor = extractor;
+        this.text = text;
+        this.vector = vector;
+    }
+
     public FeatureExtractor getExtractor() {
         return extractor;
     }
@@ -0,0 +1,69 @@
+package Evaluation;
+
+import java.util.List;
+
+/**
+ * Compares the predictions of a reduced-precision model with those of the model it
+ * was converted from, on the same held-out inputs.
+ * @param <T> any prediction type, likely strings or numerics
+ */
+public class QuantizationReport<T> {
+
+    private final double originalAccuracy;
+    private final double quantizedAccuracy;
+    private final double agreement;
+    private final int size;
+
+    /**
+     * @param originalPredictions the predictions of the full-precision model
+     * @param quantizedPredictions the predictions of the reduced-precision model
+     * @param gold the "correct"/target values of the same inputs
+     */
+    public QuantizationReport(List<T> originalPredictions, List<T> quantizedPredictions, List<T> gold) {
+        if (originalPredictions.size() != gold.size() || quantizedPredictions.size() != gold.size())
+            throw new IllegalArgumentException("Containers are not of equal size.");
+        size = gold.size();
+        originalAccuracy = new Evaluator<>(originalPredictions, gold).getAccuracy();
+        quantizedAccuracy = new Evaluator<>(quantizedPredictions, gold).getAccuracy();
+
+        int agreeing = 0;
+        for (int i = 0; i < size; i++) {
+            if (originalPredictions.get(i).equals(quantizedPredictions.get(i)))
+                agreeing++;
+        }
+        agreement = (double) agreeing / size;
+    }
+
+    public double getOriginalAccuracy() {
+        return originalAccuracy;
+    }
+
+    public double getQuantizedAccuracy() {
+        return quantizedAccuracy;
+    }
+
+    /**
+     * @return the accuracy of the quantized model minus that of the original; negative
+     * values mean the quantized model is less accurate
+     */
+    public double getAccuracyDelta() {
+        return quantizedAccuracy - originalAccuracy;
+    }
+
+    /**
+     * @return the fraction of inputs on which both models predict the same value
+     */
+    public double getAgreement() {
+        return agreement;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QuantizationReport(original: %.3f, quantized: %.3f, delta: %+.3f, agreement: %.3f, n: %d)",
+                originalAccuracy, quantizedAccuracy, getAccuracyDelta(), agreement, size);
+    }
+}
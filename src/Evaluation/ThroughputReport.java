@@ -0,0 +1,61 @@
+package Evaluation;
+
+/**
+ * Summarizes the speed of a training run: how many examples were processed, by how
+ * many threads, in how long, and how dense the examples were.
+ */
+public class ThroughputReport {
+
+    private final long examples;
+    private final long nonZeros;
+    private final int threads;
+    private final long elapsedNanos;
+
+    /**
+     * @param examples the number of examples processed, counting each epoch separately
+     * @param nonZeros the number of non-zero elements in those examples
+     * @param threads the number of threads that processed them
+     * @param elapsedNanos the wall-clock time taken, in nanoseconds
+     */
+    public ThroughputReport(long examples, long nonZeros, int threads, long elapsedNanos) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be a positive integer.");
+        this.examples = examples;
+        this.nonZeros = nonZeros;
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getExamples() {
+        return examples;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public double getSeconds() {
+        return elapsedNanos / 1e9;
+    }
+
+    public double getExamplesPerSecond() {
+        return examples / getSeconds();
+    }
+
+    public double getExamplesPerSecondPerThread() {
+        return getExamplesPerSecond() / threads;
+    }
+
+    /**
+     * @return the average number of non-zero elements per example
+     */
+    public double getAverageNonZeros() {
+        return examples == 0 ? 0.0 : (double) nonZeros / examples;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThroughputReport(examples: %d, threads: %d, seconds: %.3f, examples/sec/thread: %.1f, nnz/example: %.1f)",
+                examples, threads, getSeconds(), getExamplesPerSecondPerThread(), getAverageNonZeros());
+    }
+}
@@ -1,8 +1,11 @@
 package FeatureExtraction;
 
-import Vectors.CompressedFeatureVector;
+import FeatureExtraction.Counter.Counter;
+import Vectors.PackedFeatureVector;
 import Vectors.FeatureVector;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -10,17 +13,59 @@ import java.util.*;
  */
 public class BOWExtractor implements FeatureExtractor {
 
-    private HashMap<String, Integer> word2Idx;
+    private Vocabulary vocabulary;
 
     public BOWExtractor(Iterable<String[]> dataPoints) {
         Set<String> vocab = getAllWords(dataPoints);
-        word2Idx = initWord2Idx(vocab);
+        vocabulary = new HashVocabulary(initWord2Idx(vocab));
     }
 
+    /**
+     * Fits the vocabulary on several threads, each collecting the words of its share of
+     * the documents into a table of its own. The tables are merged at the end, and the
+     * vocabulary is identical to that of a sequential fit.
+     * @param dataPoints the tokenized documents
+     * @param nThreads the number of threads
+     */
+    public BOWExtractor(Iterable<String[]> dataPoints, int nThreads) {
+        Counter<String> counts = ParallelCounting.count(dataPoints, nThreads, Counter::new);
+        vocabulary = new HashVocabulary(initWord2Idx(counts.vocab()));
+    }
+
+    private BOWExtractor(Vocabulary vocabulary) {
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Writes the vocabulary to a file, to be read back by {@link #load(Path)}.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        ExtractorFormat.write(path, ExtractorFormat.BOW, vocabulary, 0, null);
+    }
+
+    /**
+     * Loads an extractor saved by {@link #save(Path)}. The vocabulary is memory-mapped
+     * and searched in place, so no training data is needed and nothing is rebuilt.
+     * @param path the file to read
+     * @return an extractor that produces the same vectors as the one saved
+     * @throws IOException if the file cannot be read or is not a bag-of-words extractor
+     */
+    public static BOWExtractor load(Path path) throws IOException {
+        return new BOWExtractor(ExtractorFormat.read(path, ExtractorFormat.BOW).vocabulary);
+    }
+
+    /**
+     * Assigns indices to words in sorted order, so that the same vocabulary always
+     * yields the same indices however it was collected.
+     */
     static HashMap<String, Integer> initWord2Idx(Set<String> vocab) {
         HashMap<String, Integer> word2Idx = new HashMap<>(vocab.size());
+        String[] words = vocab.toArray(new String[0]);
+        Arrays.sort(words);
         int index = 0;
-        for (String word : vocab) {
+        for (String word : words) {
             word2Idx.put(word, index);
             index++;
         }
@@ -39,16 +84,35 @@ public class BOWExtractor implements FeatureExtractor {
 
     @Override
     public FeatureVector vectorize(String[] tokens) {
-        HashMap<Integer, Double> indexMap = new HashMap<>();
+        int[] indices = new int[tokens.length];
+        double[] values = new double[tokens.length];
+        int count = 0;
         for (String token : tokens) {
-            if (word2Idx.keySet().contains(token))
-                indexMap.put(word2Idx.get(token), 1.0);
+            int index = vocabulary.indexOf(token);
+            if (index >= 0) {
+                indices[count] = index;
+                values[count] = 1.0;
+                count++;
+            }
         }
-        return new CompressedFeatureVector(featureCount(), indexMap);
+        return new PackedFeatureVector(featureCount(), indices, values, count);
     }
 
     @Override
     public int featureCount() {
-        return word2Idx.size();
+        return vocabulary.size();
+    }
+
+    /**
+     * Replaces the vocabulary by an immutable one built on a minimal perfect hash, which
+     * is smaller and faster to search. The vectors produced do not change.
+     */
+    public void freeze() {
+        if (!(vocabulary instanceof FrozenVocabulary))
+            vocabulary = FrozenVocabulary.freeze(vocabulary);
+    }
+
+    public Vocabulary getVocabulary() {
+        return vocabulary;
     }
 }
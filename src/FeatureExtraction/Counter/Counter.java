@@ -3,17 +3,22 @@ package FeatureExtraction.Counter;
 import java.util.*;
 import java.util.Map.Entry;
 
+/**
+ * Counts occurrences of elements, backed by an <code>ObjectIntCounter</code> so that
+ * counting does not box.
+ * @param <K> most likely a string, but works with any type
+ */
 public class Counter<K> implements Iterable<Entry<K, Integer>> {
 
     public static final int DEFAULT_CAPACITY = 16;
-    private HashMap<K, Integer> counter;
+    private ObjectIntCounter<K> counter;
 
     public Counter() {
         this(DEFAULT_CAPACITY);
     }
 
     public Counter(int initialCapacity) {
-        counter = new HashMap<>(initialCapacity);
+        counter = new ObjectIntCounter<>(initialCapacity);
     }
 
     public Counter(Collection<K> c) {
@@ -32,10 +37,22 @@ public class Counter<K> implements Iterable<Entry<K, Integer>> {
     }
 
     public void add(K element) {
-        if (counter.containsKey(element))
-            counter.put(element, counter.get(element) + 1);
-        else
-            counter.put(element, 1);
+        counter.add(element);
+    }
+
+    /**
+     * Adds <code>count</code> occurrences of an element at once.
+     */
+    public void add(K element, int count) {
+        counter.add(element, count);
+    }
+
+    /**
+     * Adds every count of another counter to this one, e.g. to combine counters filled
+     * on separate threads.
+     */
+    public void merge(Counter<K> other) {
+        other.counter.forEach(counter::add);
     }
 
     public void update(Collection<K> c) {
@@ -56,14 +73,31 @@ public class Counter<K> implements Iterable<Entry<K, Integer>> {
     }
 
     public int get(K key) {
-        if (counter.containsKey(key))
-            return counter.get(key);
-        return 0;
+        return counter.get(key);
+    }
+
+    /**
+     * Removes every element, so that the counter can be reused.
+     */
+    public void clear() {
+        counter.clear();
     }
 
     @Override
     public Iterator<Entry<K, Integer>> iterator() {
-        return counter.entrySet().iterator();
+        ObjectIntCounter<K>.KeyIterator keys = counter.keyIterator();
+        return new Iterator<Entry<K, Integer>>() {
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public Entry<K, Integer> next() {
+                K key = keys.next();
+                return new AbstractMap.SimpleImmutableEntry<>(key, keys.count());
+            }
+        };
     }
 
     public Set<K> vocab() {
@@ -8,6 +8,9 @@ import java.util.*;
  */
 public class DocumentCounter<K> extends Counter<K> {
 
+    private static final ThreadLocal<ObjectIntCounter<Object>> SEEN =
+            ThreadLocal.withInitial(ObjectIntCounter::new);
+
     public DocumentCounter() {
         super();
     }
@@ -30,19 +33,27 @@ public class DocumentCounter<K> extends Counter<K> {
 
     @Override
     public void update(Collection<K> c) {
-        Set<K> docSet = new HashSet<>(c);
+        ObjectIntCounter<Object> seen = seen();
         for (K elem : c)
-            add(elem);
+            if (seen.add(elem) == 1)
+                add(elem);
     }
 
     @Override
     public void update(K[] arr) {
-        Set<K> docSet = new HashSet<>();
+        ObjectIntCounter<Object> seen = seen();
         for (K elem : arr)
-            docSet.add(elem);
+            if (seen.add(elem) == 1)
+                add(elem);
+    }
 
-        for (K elem : docSet)
-            add(elem);
+    /**
+     * @return a cleared table, reused across documents on the calling thread, in which
+     * to note the elements of the current document already counted
+     */
+    private static ObjectIntCounter<Object> seen() {
+        ObjectIntCounter<Object> seen = SEEN.get();
+        seen.clear();
+        return seen;
     }
 }
-
@@ -0,0 +1,242 @@
+package FeatureExtraction.Counter;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A hash table from objects to <code>int</code> counts using open addressing with
+ * linear probing. Keys and counts sit in two parallel arrays, so incrementing a count
+ * is a single probe sequence with no boxing and no entry objects. The table can be
+ * {@link #clear() cleared} and reused, e.g. once per document.
+ * @param <K> the key type; null keys are not permitted
+ */
+public class ObjectIntCounter<K> {
+
+    private static final int MIN_CAPACITY = 16;
+    // a table this many times larger than its keys need is shrunk when cleared
+    private static final int SHRINK_FACTOR = 8;
+    private static final ThreadLocal<ObjectIntCounter<Object>> LOCAL =
+            ThreadLocal.withInitial(ObjectIntCounter::new);
+
+    private Object[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public ObjectIntCounter() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of keys the table should hold without resizing
+     */
+    public ObjectIntCounter(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Expected size must not be negative.");
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Returns an empty counter owned by the calling thread, to be reused across calls
+     * instead of allocating a new counter each time. The counter is cleared on every
+     * call, so it must not be held across a call that may use it as well.
+     * @param <K> the key type
+     * @return the calling thread's counter, cleared
+     */
+    @SuppressWarnings("unchecked")
+    public static <K> ObjectIntCounter<K> threadLocal() {
+        ObjectIntCounter<Object> counter = LOCAL.get();
+        counter.clear();
+        return (ObjectIntCounter<K>) counter;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        // keep the load factor at or below one half
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1L, 2L * expectedSize - 1)) << 1);
+        if (capacity > 1 << 30)
+            throw new IllegalArgumentException("Expected size is too large.");
+        return (int) capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 2;
+    }
+
+    private static int slot(Object key, int mask) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Finds the slot holding a key, or the empty slot where it would be inserted.
+     */
+    private int find(Object key) {
+        int slot = slot(key, mask);
+        Object current;
+        while ((current = keys[slot]) != null && !current.equals(key))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Increments the count of a key.
+     * @param key a key
+     * @return the new count of <code>key</code>
+     */
+    public int add(K key) {
+        return add(key, 1);
+    }
+
+    /**
+     * Adds to the count of a key.
+     * @param key a key
+     * @param count the amount to add
+     * @return the new count of <code>key</code>
+     */
+    public int add(K key, int count) {
+        Objects.requireNonNull(key);
+        int slot = find(key);
+        if (keys[slot] == null) {
+            if (size >= resizeThreshold) {
+                resize(keys.length * 2);
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return counts[slot] += count;
+    }
+
+    /**
+     * @param key a key
+     * @return the count of <code>key</code>, or 0 if it has not been added
+     */
+    public int get(Object key) {
+        if (key == null)
+            return 0;
+        return counts[find(key)];
+    }
+
+    public boolean containsKey(Object key) {
+        return key != null && keys[find(key)] != null;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            int slot = slot(oldKeys[i], mask);
+            while (keys[slot] != null)
+                slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    /**
+     * Removes every key in time proportional to the number of keys. The capacity is kept
+     * unless the table is mostly empty, e.g. after one unusually large document, in which
+     * case it is shrunk to fit the keys just removed; a reused counter therefore
+     * tracks the size of recent inputs instead of the largest one it has ever seen.
+     */
+    public void clear() {
+        if (size == 0)
+            return;
+        if (keys.length > MIN_CAPACITY && (long) size * SHRINK_FACTOR < keys.length) {
+            allocate(tableSizeFor(size));
+        } else {
+            Arrays.fill(keys, null);
+            Arrays.fill(counts, 0);
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Passes every key and its count to <code>action</code>, in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != null)
+                action.accept((K) keys[i], counts[i]);
+    }
+
+    /**
+     * @return a view of the keys; changes to the counter show through
+     */
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return keyIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    KeyIterator keyIterator() {
+        return new KeyIterator();
+    }
+
+    /**
+     * Iterates over the occupied slots of the table.
+     */
+    class KeyIterator implements Iterator<K> {
+        private int next = advance(0);
+        int current = -1;
+
+        private int advance(int from) {
+            while (from < keys.length && keys[from] == null)
+                from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            current = next;
+            next = advance(next + 1);
+            return (K) keys[current];
+        }
+
+        int count() {
+            return counts[current];
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package FeatureExtraction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the binary format of fitted extractors. All values are little-endian:
+ * <pre>
+ *     int     magic ("FEXT")
+ *     int     version
+ *     int     extractor type
+ *     int     nFeatures
+ *     int     nDocuments
+ *     int     padding
+ *     double  idf[nFeatures]  (TF-IDF only)
+ *     the vocabulary, as a MappedVocabulary string table
+ * </pre>
+ * The file is memory-mapped when read, and both the idf table and the vocabulary are
+ * used in place.
+ */
+class ExtractorFormat {
+
+    static final int MAGIC = 0x46455854;
+    static final int VERSION = 1;
+    static final int BOW = 0;
+    static final int TF_IDF = 1;
+
+    private static final int HEADER_BYTES = 24;
+
+    final Vocabulary vocabulary;
+    final DoubleBuffer idf;
+    final int nDocuments;
+
+    private ExtractorFormat(Vocabulary vocabulary, DoubleBuffer idf, int nDocuments) {
+        this.vocabulary = vocabulary;
+        this.idf = idf;
+        this.nDocuments = nDocuments;
+    }
+
+    static void write(Path path, int type, Vocabulary vocabulary, int nDocuments, DoubleBuffer idf) throws IOException {
+        ByteBuffer table = MappedVocabulary.encode(vocabulary);
+        int idfBytes = idf == null ? 0 : idf.limit() * Double.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + idfBytes).order(MappedVocabulary.BYTE_ORDER);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(type);
+        header.putInt(vocabulary.size());
+        header.putInt(nDocuments);
+        header.putInt(0);
+        if (idf != null)
+            for (int i = 0; i < idf.limit(); i++)
+                header.putDouble(idf.get(i));
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining())
+                channel.write(header);
+            while (table.hasRemaining())
+                channel.write(table);
+        }
+    }
+
+    static ExtractorFormat read(Path path, int type) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Extractor file is too large: " + path);
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("Truncated extractor file: " + path);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(MappedVocabulary.BYTE_ORDER);
+
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not an extractor file: " + path);
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported extractor version: " + version);
+        int storedType = buffer.getInt();
+        if (storedType != type)
+            throw new IOException("Extractor file holds a different kind of extractor: " + path);
+        int nFeatures = buffer.getInt();
+        int nDocuments = buffer.getInt();
+        buffer.getInt();
+
+        try {
+            DoubleBuffer idf = null;
+            if (type == TF_IDF) {
+                idf = buffer.slice().order(MappedVocabulary.BYTE_ORDER).asDoubleBuffer().limit(nFeatures);
+                buffer.position(buffer.position() + nFeatures * Double.BYTES);
+            }
+            MappedVocabulary vocabulary = new MappedVocabulary(buffer);
+            if (vocabulary.size() != nFeatures)
+                throw new IOException("Corrupt extractor file: " + path);
+            return new ExtractorFormat(vocabulary, idf, nDocuments);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt extractor file: " + path, e);
+        }
+    }
+}
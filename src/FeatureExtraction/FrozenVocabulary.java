@@ -0,0 +1,235 @@
+package FeatureExtraction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable vocabulary built on a minimal perfect hash, constructed with the
+ * hash-and-displace method. Every word is hashed once to 64 bits; the hash picks a
+ * bucket, and the bucket's displacement, found at construction, turns the hash into a
+ * slot that no other word of the vocabulary occupies. There are exactly as many slots
+ * as words. Each slot stores the word's feature index and its UTF-8 bytes in a packed
+ * table, against which a lookup is verified so that unknown words are rejected.
+ *
+ * A lookup costs one pass over the word's chars and one comparison with the stored
+ * word. Besides the words themselves, each entry costs about nine bytes: an index,
+ * an offset, and a quarter of a displacement.
+ */
+public class FrozenVocabulary implements Vocabulary {
+
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int MAX_DISPLACEMENT = 1 << 24;
+    private static final int MAX_ATTEMPTS = 64;
+
+    private final long seed;
+    private final int[] displacements;
+    private final int[] indices;
+    private final int[] offsets;
+    private final byte[] words;
+
+    private FrozenVocabulary(long seed, int[] displacements, int[] indices, int[] offsets, byte[] words) {
+        this.seed = seed;
+        this.displacements = displacements;
+        this.indices = indices;
+        this.offsets = offsets;
+        this.words = words;
+    }
+
+    /**
+     * Builds a frozen copy of a vocabulary.
+     * @param vocabulary any vocabulary
+     * @return an immutable vocabulary mapping the same words to the same indices
+     */
+    public static FrozenVocabulary freeze(Vocabulary vocabulary) {
+        int size = vocabulary.size();
+        String[] keys = new String[size];
+        int[] keyIndices = new int[size];
+        int[] count = {0};
+        vocabulary.forEach((word, index) -> {
+            keys[count[0]] = word;
+            keyIndices[count[0]] = index;
+            count[0]++;
+        });
+
+        long seed = 0;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++, seed += GOLDEN_GAMMA) {
+            int[] slots = new int[size];
+            int[] displacements = place(keys, seed, slots);
+            if (displacements != null)
+                return pack(keys, keyIndices, seed, displacements, slots);
+        }
+        throw new IllegalStateException("Could not build a perfect hash for the vocabulary");
+    }
+
+    /**
+     * Finds a displacement for every bucket, largest buckets first, such that all words
+     * land in distinct slots.
+     * @param slots receives the slot of each word
+     * @return the displacement of each bucket, or null if some bucket could not be placed
+     */
+    private static int[] place(String[] keys, long seed, int[] slots) {
+        int size = keys.length;
+        int nBuckets = Math.max(1, (size + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+        long[] hashes = new long[size];
+        List<List<Integer>> buckets = new ArrayList<>(nBuckets);
+        for (int b = 0; b < nBuckets; b++)
+            buckets.add(new ArrayList<>(KEYS_PER_BUCKET));
+        for (int k = 0; k < size; k++) {
+            hashes[k] = hash(keys[k], seed);
+            buckets.get(bucket(hashes[k], nBuckets)).add(k);
+        }
+
+        Integer[] order = new Integer[nBuckets];
+        for (int b = 0; b < nBuckets; b++)
+            order[b] = b;
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] displacements = new int[nBuckets];
+        boolean[] taken = new boolean[size];
+        int[] candidate = new int[KEYS_PER_BUCKET * 8];
+        for (int b : order) {
+            List<Integer> bucket = buckets.get(b);
+            if (bucket.isEmpty())
+                break;
+            if (candidate.length < bucket.size())
+                candidate = new int[bucket.size()];
+
+            int d = 0;
+            search:
+            for (; d < MAX_DISPLACEMENT; d++) {
+                for (int i = 0; i < bucket.size(); i++) {
+                    int slot = slot(hashes[bucket.get(i)], d, size);
+                    if (taken[slot])
+                        continue search;
+                    for (int j = 0; j < i; j++)
+                        if (candidate[j] == slot)
+                            continue search;
+                    candidate[i] = slot;
+                }
+                break;
+            }
+            if (d == MAX_DISPLACEMENT)
+                return null;
+
+            displacements[b] = d;
+            for (int i = 0; i < bucket.size(); i++) {
+                taken[candidate[i]] = true;
+                slots[bucket.get(i)] = candidate[i];
+            }
+        }
+        return displacements;
+    }
+
+    private static FrozenVocabulary pack(String[] keys, int[] keyIndices, long seed, int[] displacements, int[] slots) {
+        int size = keys.length;
+        byte[][] encoded = new byte[size][];
+        int[] indices = new int[size];
+        int totalBytes = 0;
+        for (int k = 0; k < size; k++) {
+            encoded[slots[k]] = keys[k].getBytes(StandardCharsets.UTF_8);
+            indices[slots[k]] = keyIndices[k];
+            totalBytes += encoded[slots[k]].length;
+        }
+
+        int[] offsets = new int[size + 1];
+        byte[] words = new byte[totalBytes];
+        for (int s = 0; s < size; s++) {
+            System.arraycopy(encoded[s], 0, words, offsets[s], encoded[s].length);
+            offsets[s + 1] = offsets[s] + encoded[s].length;
+        }
+        return new FrozenVocabulary(seed, displacements, indices, offsets, words);
+    }
+
+    /**
+     * A 64-bit FNV-1a hash of the chars of a word, finished with a strong mix.
+     */
+    private static long hash(String word, long seed) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < word.length(); i++)
+            h = (h ^ word.charAt(i)) * 0x100000001b3L;
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Reduces a hash to <code>[0, range)</code> by a multiply and shift.
+     */
+    private static int reduce(long hash, int range) {
+        return (int) (((hash >>> 32) * range) >>> 32);
+    }
+
+    private static int bucket(long hash, int nBuckets) {
+        return reduce(hash, nBuckets);
+    }
+
+    private static int slot(long hash, int displacement, int size) {
+        return reduce(mix(hash + displacement * GOLDEN_GAMMA), size);
+    }
+
+    @Override
+    public int indexOf(String word) {
+        int size = indices.length;
+        if (size == 0)
+            return -1;
+        long h = hash(word, seed);
+        int slot = slot(h, displacements[bucket(h, displacements.length)], size);
+        return matches(word, offsets[slot], offsets[slot + 1]) ? indices[slot] : -1;
+    }
+
+    /**
+     * Compares a word with the UTF-8 bytes <code>[start, end)</code> of the table,
+     * encoding the word on the fly rather than allocating its bytes.
+     */
+    private boolean matches(String word, int start, int end) {
+        int position = start;
+        for (int i = 0; i < word.length(); i++) {
+            int c = word.charAt(i);
+            if (c < 0x80) {
+                if (position >= end || words[position++] != c)
+                    return false;
+                continue;
+            }
+            if (Character.isHighSurrogate((char) c) && i + 1 < word.length()
+                    && Character.isLowSurrogate(word.charAt(i + 1))) {
+                c = Character.toCodePoint((char) c, word.charAt(++i));
+            } else if (Character.isSurrogate((char) c)) {
+                c = '?';    // as String.getBytes encodes an unpaired surrogate
+            }
+            int length = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+            if (end - position < length)
+                return false;
+            if (length == 1) {
+                if (words[position++] != c)
+                    return false;
+                continue;
+            }
+            int lead = length == 2 ? 0xC0 : length == 3 ? 0xE0 : 0xF0;
+            if ((words[position++] & 0xFF) != (lead | (c >>> (6 * (length - 1)))))
+                return false;
+            for (int shift = 6 * (length - 2); shift >= 0; shift -= 6)
+                if ((words[position++] & 0xFF) != (0x80 | ((c >>> shift) & 0x3F)))
+                    return false;
+        }
+        return position == end;
+    }
+
+    @Override
+    public int size() {
+        return indices.length;
+    }
+
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int s = 0; s < indices.length; s++)
+            action.accept(new String(words, offsets[s], offsets[s + 1] - offsets[s], StandardCharsets.UTF_8), indices[s]);
+    }
+}
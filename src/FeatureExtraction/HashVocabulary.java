@@ -0,0 +1,34 @@
+package FeatureExtraction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A vocabulary backed by a <code>HashMap</code>, as built when an extractor is fit.
+ */
+public class HashVocabulary implements Vocabulary {
+
+    private final HashMap<String, Integer> word2Idx;
+
+    public HashVocabulary(HashMap<String, Integer> word2Idx) {
+        this.word2Idx = word2Idx;
+    }
+
+    @Override
+    public int indexOf(String word) {
+        Integer index = word2Idx.get(word);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public int size() {
+        return word2Idx.size();
+    }
+
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (Map.Entry<String, Integer> entry : word2Idx.entrySet())
+            action.accept(entry.getKey(), entry.getValue());
+    }
+}
@@ -0,0 +1,100 @@
+package FeatureExtraction;
+
+import Vectors.FeatureVector;
+import Vectors.PackedFeatureVector;
+
+/**
+ * A feature extractor using the hashing trick. Each token is hashed with 32-bit
+ * MurmurHash3 over its UTF-16 chars; the low bits of the hash select one of a fixed,
+ * power-of-two number of features and the top bit the sign of its count, so that
+ * collisions cancel out in expectation rather than pile up. No vocabulary is kept and
+ * no fitting pass is needed, so the number of features is known before any data is seen.
+ */
+public class HashingExtractor implements FeatureExtractor {
+
+    public static final int DEFAULT_SEED = 0;
+    /**
+     * The largest dimension, which leaves the top bit of the hash free for the sign.
+     */
+    public static final int MAX_DIMENSION = 1 << 30;
+
+    private final int dimension;
+    private final int mask;
+    private final int seed;
+
+    public HashingExtractor(int dimension) {
+        this(dimension, DEFAULT_SEED);
+    }
+
+    /**
+     * @param dimension the number of features, a power of two
+     * @param seed the seed of the hash function
+     */
+    public HashingExtractor(int dimension, int seed) {
+        if (dimension < 1 || dimension > MAX_DIMENSION || Integer.bitCount(dimension) != 1)
+            throw new IllegalArgumentException("Dimension must be a power of two no greater than 2^30.");
+        this.dimension = dimension;
+        this.mask = dimension - 1;
+        this.seed = seed;
+    }
+
+    @Override
+    public FeatureVector vectorize(String[] tokens) {
+        int[] indices = new int[tokens.length];
+        double[] values = new double[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            int hash = murmur3(tokens[i], seed);
+            indices[i] = hash & mask;
+            values[i] = hash < 0 ? -1.0 : 1.0;
+        }
+        return PackedFeatureVector.summing(dimension, indices, values, tokens.length);
+    }
+
+    @Override
+    public int featureCount() {
+        return dimension;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    /**
+     * Computes the 32-bit MurmurHash3 of the chars of a string, two chars per block,
+     * without encoding the string to bytes.
+     */
+    static int murmur3(CharSequence chars, int seed) {
+        int h = seed;
+        int length = chars.length();
+        int i = 1;
+        for (; i < length; i += 2) {
+            int k = chars.charAt(i - 1) | (chars.charAt(i) << 16);
+            h = mixH(h, mixK(k));
+        }
+        if ((length & 1) == 1)
+            h ^= mixK(chars.charAt(length - 1));
+        return finalMix(h, Character.BYTES * length);
+    }
+
+    private static int mixK(int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1b873593;
+    }
+
+    private static int mixH(int h, int k) {
+        h ^= k;
+        h = Integer.rotateLeft(h, 13);
+        return h * 5 + 0xe6546b64;
+    }
+
+    private static int finalMix(int h, int length) {
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,143 @@
+package FeatureExtraction;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A vocabulary read in place from a string table, typically in a memory-mapped file.
+ * The table holds the UTF-8 encoded words sorted by their bytes, so a word is found by
+ * binary search without building any map:
+ * <pre>
+ *     int     count
+ *     int     offsets[count + 1]  (start of each word in the blob; the last is its length)
+ *     int     indices[count]      (feature index of each word)
+ *     byte    blob[]
+ * </pre>
+ * Values are little-endian.
+ */
+public class MappedVocabulary implements Vocabulary {
+
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final int size;
+    private final IntBuffer offsets;
+    private final IntBuffer indices;
+    private final ByteBuffer blob;
+
+    /**
+     * @param table a buffer positioned at the start of a string table
+     */
+    public MappedVocabulary(ByteBuffer table) {
+        ByteBuffer buffer = table.slice().order(BYTE_ORDER);
+        size = buffer.getInt(0);
+        if (size < 0)
+            throw new IllegalArgumentException("Corrupt string table");
+        int offsetsStart = Integer.BYTES;
+        int indicesStart = offsetsStart + (size + 1) * Integer.BYTES;
+        int blobStart = indicesStart + size * Integer.BYTES;
+        offsets = buffer.position(offsetsStart).limit(indicesStart).slice().order(BYTE_ORDER).asIntBuffer();
+        buffer.clear();
+        indices = buffer.position(indicesStart).limit(blobStart).slice().order(BYTE_ORDER).asIntBuffer();
+        buffer.clear();
+        blob = buffer.position(blobStart).limit(blobStart + offsets.get(size)).slice();
+    }
+
+    /**
+     * Encodes a vocabulary as a string table.
+     * @param vocabulary any vocabulary
+     * @return the table, ready to be written
+     */
+    public static ByteBuffer encode(Vocabulary vocabulary) {
+        int size = vocabulary.size();
+        byte[][] words = new byte[size][];
+        int[] wordIndices = new int[size];
+        Integer[] order = new Integer[size];
+        int[] count = {0};
+        vocabulary.forEach((word, index) -> {
+            words[count[0]] = word.getBytes(StandardCharsets.UTF_8);
+            wordIndices[count[0]] = index;
+            order[count[0]] = count[0];
+            count[0]++;
+        });
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(words[a], words[b]));
+
+        int blobLength = 0;
+        for (byte[] word : words)
+            blobLength += word.length;
+        ByteBuffer table = ByteBuffer.allocate(tableBytes(size, blobLength)).order(BYTE_ORDER);
+        table.putInt(size);
+        int offset = 0;
+        for (int i : order) {
+            table.putInt(offset);
+            offset += words[i].length;
+        }
+        table.putInt(offset);
+        for (int i : order)
+            table.putInt(wordIndices[i]);
+        for (int i : order)
+            table.put(words[i]);
+        table.flip();
+        return table;
+    }
+
+    private static int tableBytes(int size, int blobLength) {
+        return Integer.BYTES * (2 * size + 2) + blobLength;
+    }
+
+    /**
+     * @return the number of bytes the table occupies
+     */
+    public int byteSize() {
+        return tableBytes(size, blob.capacity());
+    }
+
+    @Override
+    public int indexOf(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compare(mid, key);
+            if (comparison < 0)
+                low = mid + 1;
+            else if (comparison > 0)
+                high = mid - 1;
+            else
+                return indices.get(mid);
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the word at a position in the table with a key, byte by byte as unsigned.
+     */
+    private int compare(int position, byte[] key) {
+        int start = offsets.get(position), end = offsets.get(position + 1);
+        int length = Math.min(end - start, key.length);
+        for (int i = 0; i < length; i++) {
+            int comparison = Byte.compareUnsigned(blob.get(start + i), key[i]);
+            if (comparison != 0)
+                return comparison;
+        }
+        return (end - start) - key.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < size; i++) {
+            int start = offsets.get(i);
+            byte[] word = new byte[offsets.get(i + 1) - start];
+            blob.get(start, word);
+            action.accept(new String(word, StandardCharsets.UTF_8), indices.get(i));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package FeatureExtraction;
+
+import FeatureExtraction.Counter.Counter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Counts tokens over a collection of documents on several threads. The documents are
+ * split into chunks, which the threads take in turn and count into counters of their
+ * own; the per-thread counters are merged once every chunk is done.
+ */
+class ParallelCounting {
+
+    static final int CHUNK_SIZE = 1024;
+
+    private ParallelCounting() {}
+
+    /**
+     * @param documents the tokenized documents
+     * @param nThreads the number of threads
+     * @param newCounter creates an empty counter; each document is added with
+     *                   <code>Counter.update(K[])</code>
+     * @return a counter holding the counts of every document
+     */
+    static <C extends Counter<String>> C count(Iterable<String[]> documents, int nThreads, Supplier<C> newCounter) {
+        if (nThreads < 1)
+            throw new IllegalArgumentException("Thread count must be a positive integer.");
+
+        List<List<String[]>> chunks = new ArrayList<>();
+        List<String[]> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (String[] document : documents) {
+            chunk.add(document);
+            if (chunk.size() == CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty())
+            chunks.add(chunk);
+
+        int workers = Math.max(1, Math.min(nThreads, chunks.size()));
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Callable<C>> tasks = new ArrayList<>(workers);
+        for (int t = 0; t < workers; t++) {
+            tasks.add(() -> {
+                C local = newCounter.get();
+                int c;
+                while ((c = nextChunk.getAndIncrement()) < chunks.size())
+                    for (String[] document : chunks.get(c))
+                        local.update(document);
+                return local;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<C>> results = executor.invokeAll(tasks);
+            C total = results.get(0).get();
+            for (int t = 1; t < results.size(); t++)
+                total.merge(results.get(t).get());
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Counting failed on a worker thread", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,18 +1,121 @@
 package FeatureExtraction;
 
 import Vectors.FeatureVector;
+import Vectors.PackedFeatureVector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
- * A Random Index feature extractor.
+ * A Random Index feature extractor. Every token has a sparse ternary index vector: a few
+ * randomly placed elements, half of them 1 and half -1, in a space of fixed dimension.
+ * The positions are drawn from a generator seeded with a hash of the token, so the
+ * index vectors are deterministic and need not be stored; a document vector is the sum
+ * of the index vectors of its tokens. The index vectors of the most recently used
+ * tokens are cached.
  */
 public class RandomIndexExtractor implements FeatureExtractor {
+
+    public static final int DEFAULT_DIMENSION = 2048;
+    public static final int DEFAULT_NON_ZEROS = 8;
+    public static final int DEFAULT_SEED = 0;
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private final int dimension;
+    private final int nonZeros;
+    private final int seed;
+    private final LinkedHashMap<String, int[]> cache;
+
+    public RandomIndexExtractor() {
+        this(DEFAULT_DIMENSION, DEFAULT_NON_ZEROS);
+    }
+
+    public RandomIndexExtractor(int dimension, int nonZeros) {
+        this(dimension, nonZeros, DEFAULT_SEED, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param dimension the length of the index and document vectors
+     * @param nonZeros the number of non-zero elements of each index vector
+     * @param seed the seed of the hash from which the index vectors are derived
+     * @param cacheSize the largest number of index vectors cached
+     */
+    public RandomIndexExtractor(int dimension, int nonZeros, int seed, int cacheSize) {
+        if (dimension < 1)
+            throw new IllegalArgumentException("Dimension must be a positive integer.");
+        if (nonZeros < 1 || nonZeros > dimension)
+            throw new IllegalArgumentException("Non-zero count must be between 1 and the dimension.");
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("Cache size must not be negative.");
+        this.dimension = dimension;
+        this.nonZeros = nonZeros;
+        this.seed = seed;
+        this.cache = new LinkedHashMap<String, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
     @Override
     public FeatureVector vectorize(String[] tokens) {
-        return null;
+        int[] indices = new int[tokens.length * nonZeros];
+        double[] values = new double[indices.length];
+        int count = 0;
+        for (String token : tokens) {
+            int[] indexVector = indexVector(token);
+            for (int k = 0; k < nonZeros; k++) {
+                indices[count] = indexVector[k];
+                values[count] = k < (nonZeros + 1) / 2 ? 1.0 : -1.0;
+                count++;
+            }
+        }
+        return PackedFeatureVector.summing(dimension, indices, values, count);
+    }
+
+    /**
+     * Looks up or derives the positions of the non-zero elements of a token's index
+     * vector. The first <code>(nonZeros + 1) / 2</code> positions hold 1, the rest -1.
+     */
+    private int[] indexVector(String token) {
+        synchronized (cache) {
+            int[] cached = cache.get(token);
+            if (cached != null)
+                return cached;
+        }
+
+        long hash = ((long) HashingExtractor.murmur3(token, seed) << 32)
+                | (HashingExtractor.murmur3(token, ~seed) & 0xFFFFFFFFL);
+        SplittableRandom random = new SplittableRandom(hash);
+        int[] positions = new int[nonZeros];
+        int found = 0;
+        while (found < nonZeros) {
+            int position = random.nextInt(dimension);
+            boolean duplicate = false;
+            for (int k = 0; k < found && !duplicate; k++)
+                duplicate = positions[k] == position;
+            if (!duplicate)
+                positions[found++] = position;
+        }
+
+        synchronized (cache) {
+            cache.put(token, positions);
+        }
+        return positions;
     }
 
     @Override
     public int featureCount() {
-        return 0;
+        return dimension;
+    }
+
+    public int getNonZeros() {
+        return nonZeros;
+    }
+
+    public int getSeed() {
+        return seed;
     }
 }
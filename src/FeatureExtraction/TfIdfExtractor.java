@@ -1,81 +1,123 @@
 package FeatureExtraction;
 
-import FeatureExtraction.Counter.Counter;
 import FeatureExtraction.Counter.DocumentCounter;
-import Vectors.CompressedFeatureVector;
+import FeatureExtraction.Counter.ObjectIntCounter;
+import Vectors.PackedFeatureVector;
 import Vectors.FeatureVector;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
- * A TF-IDF feature extractor.
+ * A TF-IDF feature extractor. The inverse document frequency of every word is computed
+ * once when the extractor is fit, and tokens outside the vocabulary are ignored.
  */
 public class TfIdfExtractor implements FeatureExtractor {
 
-    private DocumentCounter<String> docFreqs;
-    private HashMap<String, Integer> word2Idx;
+    private Vocabulary vocabulary;
+    private DoubleBuffer idf;
     private int nDocuments;
 
     public TfIdfExtractor(Collection<String[]> dataPoints) {
-        docFreqs = new DocumentCounter<String>(dataPoints);
-        word2Idx = BOWExtractor.initWord2Idx(docFreqs.vocab());
+        this(dataPoints, new DocumentCounter<String>(dataPoints));
+    }
+
+    /**
+     * Counts document frequencies on several threads, each counting its share of the
+     * documents into a table of its own. The tables are merged at the end, and the
+     * extractor is identical to one fit sequentially.
+     * @param dataPoints the tokenized documents
+     * @param nThreads the number of threads
+     */
+    public TfIdfExtractor(Collection<String[]> dataPoints, int nThreads) {
+        this(dataPoints, ParallelCounting.count(dataPoints, nThreads, DocumentCounter::new));
+    }
+
+    private TfIdfExtractor(Collection<String[]> dataPoints, DocumentCounter<String> docFreqs) {
+        vocabulary = new HashVocabulary(BOWExtractor.initWord2Idx(docFreqs.vocab()));
         nDocuments = dataPoints.size();
+        double[] idfValues = new double[vocabulary.size()];
+        vocabulary.forEach((word, index) -> idfValues[index] = inverseDocFreq(docFreqs.get(word)));
+        idf = DoubleBuffer.wrap(idfValues);
+    }
+
+    private TfIdfExtractor(Vocabulary vocabulary, DoubleBuffer idf, int nDocuments) {
+        this.vocabulary = vocabulary;
+        this.idf = idf;
+        this.nDocuments = nDocuments;
+    }
+
+    /**
+     * Writes the vocabulary and inverse document frequencies to a file, to be read back
+     * by {@link #load(Path)}.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        ExtractorFormat.write(path, ExtractorFormat.TF_IDF, vocabulary, nDocuments, idf);
+    }
+
+    /**
+     * Loads an extractor saved by {@link #save(Path)}. The file is memory-mapped; the
+     * vocabulary is searched and the inverse document frequencies read in place, so no
+     * training data is needed and nothing is recounted or copied.
+     * @param path the file to read
+     * @return an extractor that produces the same vectors as the one saved
+     * @throws IOException if the file cannot be read or is not a TF-IDF extractor
+     */
+    public static TfIdfExtractor load(Path path) throws IOException {
+        ExtractorFormat format = ExtractorFormat.read(path, ExtractorFormat.TF_IDF);
+        return new TfIdfExtractor(format.vocabulary, format.idf, format.nDocuments);
     }
 
     @Override
     public FeatureVector vectorize(String[] tokens) {
-        Map<Integer, Double> nonZerosIndices = new HashMap<>(tokens.length);
-        int[] indices = mapToIndices(tokens);
-        double[] tfIdfValues = calculateTfIdfValues(tokens);
-
-        for (int i = 0; i < tokens.length; i++) {
-            int index = indices[i];
-            double value = tfIdfValues[i];
-            nonZerosIndices.put(index, value);
+        int[] indices = new int[tokens.length];
+        double[] tfIdfValues = new double[tokens.length];
+        ObjectIntCounter<String> docCount = ObjectIntCounter.threadLocal();
+        for (String token : tokens)
+            docCount.add(token);
+
+        int count = 0;
+        for (String token : tokens) {
+            int index = vocabulary.indexOf(token);
+            if (index < 0)
+                continue;
+            indices[count] = index;
+            tfIdfValues[count] = termFrequency(token, docCount, tokens.length) * idf.get(index);
+            count++;
         }
 
-        return new CompressedFeatureVector(featureCount(), nonZerosIndices);
+        return new PackedFeatureVector(featureCount(), indices, tfIdfValues, count);
     }
 
     @Override
     public int featureCount() {
-        return word2Idx.size();
+        return vocabulary.size();
     }
 
-    private int[] mapToIndices(String[] tokens) {
-        int[] retArray = new int[tokens.length];
-        for (int i = 0; i < tokens.length; i++) {
-            retArray[i] = word2Idx.get(tokens[i]);
-        }
-        return retArray;
+    /**
+     * Replaces the vocabulary by an immutable one built on a minimal perfect hash, which
+     * is smaller and faster to search. The vectors produced do not change.
+     */
+    public void freeze() {
+        if (!(vocabulary instanceof FrozenVocabulary))
+            vocabulary = FrozenVocabulary.freeze(vocabulary);
     }
 
-    private double[] calculateTfIdfValues(String[] tokens) {
-        double[] values = new double[tokens.length];
-        Counter<String> docCount = new Counter<>(tokens);
-
-        double tf;
-        double idf;
-        String token;
-
-        for (int i = 0; i < tokens.length; i++) {
-            token = tokens[i];
-            tf = termFrequency(token, docCount, tokens.length);
-            idf = inverseDocFreq(token);
-            values[i] = tf * idf;
-        }
-        return values;
+    public Vocabulary getVocabulary() {
+        return vocabulary;
     }
 
-    private static double termFrequency(String token, Counter<String> context, int docLength) {
+    private static double termFrequency(String token, ObjectIntCounter<String> context, int docLength) {
         return Math.log(1 + (double) context.get(token) / docLength);
     }
 
-    private double inverseDocFreq(String token) {
-        int docFreq = docFreqs.get(token);
+    private double inverseDocFreq(int docFreq) {
         if (docFreq == 0)
             return 0.0;
-        return Math.log((double) nDocuments / docFreqs.get(token));
+        return Math.log((double) nDocuments / docFreq);
     }
 }
@@ -0,0 +1,22 @@
+package FeatureExtraction;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A mapping from words to feature indices <code>[0, size())</code>.
+ */
+public interface Vocabulary {
+
+    /**
+     * @param word a word
+     * @return the feature index of <code>word</code>, or -1 if it is not in the vocabulary
+     */
+    int indexOf(String word);
+
+    int size();
+
+    /**
+     * Passes every word and its index to <code>action</code>, in no particular order.
+     */
+    void forEach(ObjIntConsumer<String> action);
+}
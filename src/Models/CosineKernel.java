@@ -0,0 +1,15 @@
+package Models;
+
+import Vectors.FeatureVector;
+
+/**
+ * The cosine similarity of two vectors, taken to be zero when either is empty.
+ */
+public class CosineKernel implements Kernel {
+
+    @Override
+    public double evaluate(FeatureVector a, FeatureVector b) {
+        double similarity = a.cosineSimilarity(b);
+        return Double.isNaN(similarity) ? 0.0 : similarity;
+    }
+}
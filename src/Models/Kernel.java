@@ -0,0 +1,13 @@
+package Models;
+
+import Vectors.FeatureVector;
+
+/**
+ * A similarity function that corresponds to a dot product in some, possibly much
+ * larger, feature space.
+ */
+public interface Kernel {
+
+    public double evaluate(FeatureVector a, FeatureVector b);
+
+}
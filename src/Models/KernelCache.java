@@ -0,0 +1,82 @@
+package Models;
+
+import Vectors.FeatureVector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-limited cache of kernel evaluations between training examples, keyed by the
+ * unordered pair of their indices and evicting the least recently used pair first.
+ * Also counts hits, misses and the time spent evaluating the kernel.
+ */
+class KernelCache {
+
+    private final Kernel kernel;
+    private final int capacity;
+    private final LinkedHashMap<Long, Double> values;
+    private long hits, misses, evaluations, evaluationNanos;
+
+    KernelCache(Kernel kernel, int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity must not be negative.");
+        this.kernel = kernel;
+        this.capacity = capacity;
+        this.values = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                return size() > KernelCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Evaluates the kernel on two training examples, or looks up a previous evaluation.
+     */
+    double get(int i, FeatureVector a, int j, FeatureVector b) {
+        long key = i < j ? ((long) i << 32) | (j & 0xFFFFFFFFL) : ((long) j << 32) | (i & 0xFFFFFFFFL);
+        Double cached = values.get(key);
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        double value = evaluate(a, b);
+        if (capacity > 0)
+            values.put(key, value);
+        return value;
+    }
+
+    /**
+     * Evaluates the kernel without consulting the cache, e.g. for an unseen input.
+     */
+    double evaluate(FeatureVector a, FeatureVector b) {
+        long start = System.nanoTime();
+        double value = kernel.evaluate(a, b);
+        evaluationNanos += System.nanoTime() - start;
+        evaluations++;
+        return value;
+    }
+
+    void clear() {
+        values.clear();
+        hits = misses = evaluations = evaluationNanos = 0;
+    }
+
+    double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    double evaluationsPerSecond() {
+        return evaluationNanos == 0 ? 0.0 : evaluations / (evaluationNanos / 1e9);
+    }
+
+    long evaluations() {
+        return evaluations;
+    }
+
+    Kernel kernel() {
+        return kernel;
+    }
+}
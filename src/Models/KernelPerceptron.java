@@ -0,0 +1,259 @@
+package Models;
+
+import Evaluation.Evaluator;
+import Evaluation.Scores;
+import Vectors.FeatureMatrix;
+import Vectors.FeatureVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A perceptron in the feature space of a <code>Kernel</code>. Instead of weights it keeps
+ * the training examples it has mispredicted, its support set, each with a coefficient,
+ * and scores an input by the weighted kernel evaluations between it and every support
+ * vector. The support set is bounded by a budget; once full, a support vector is removed
+ * according to the removal policy for every one added. Kernel evaluations between
+ * training examples are cached.
+ */
+public class KernelPerceptron implements Model<Byte> {
+
+    /**
+     * Which support vector to remove when the support set exceeds its budget.
+     */
+    public enum RemovalPolicy {
+        /** The support vector added first. */
+        OLDEST,
+        /** The support vector with the coefficient of smallest magnitude. */
+        SMALLEST_COEFFICIENT
+    }
+
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    private final KernelCache cache;
+    private final int budget;
+    private RemovalPolicy removalPolicy = RemovalPolicy.OLDEST;
+    private double lr;
+    private int nIter;
+
+    // the support set, as parallel arrays of which the first supportSize entries are used
+    private FeatureVector[] supportVectors;
+    private int[] supportIds;
+    private double[] coefficients;
+    private long[] addedAt;
+    private int supportSize;
+    private double bias;
+    private List<Byte> lastPredictions;
+
+    private final int DEFAULT_NUM_ITER = 5;
+
+    /**
+     * @param kernel the kernel
+     * @param lr the learning rate
+     * @param budget the largest number of support vectors kept
+     */
+    public KernelPerceptron(Kernel kernel, double lr, int budget) {
+        this(kernel, lr, budget, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param kernel the kernel
+     * @param lr the learning rate
+     * @param budget the largest number of support vectors kept
+     * @param cacheSize the largest number of kernel evaluations cached
+     */
+    public KernelPerceptron(Kernel kernel, double lr, int budget, int cacheSize) {
+        if (budget < 1)
+            throw new IllegalArgumentException("Budget must be a positive integer.");
+        this.cache = new KernelCache(kernel, cacheSize);
+        this.budget = budget;
+        this.lr = lr;
+        this.nIter = DEFAULT_NUM_ITER;
+        int initialCapacity = Math.min(budget, 16);
+        supportVectors = new FeatureVector[initialCapacity];
+        supportIds = new int[initialCapacity];
+        coefficients = new double[initialCapacity];
+        addedAt = new long[initialCapacity];
+    }
+
+    @Override
+    public void fit(FeatureMatrix inputs, List<Byte> targets) {
+        if (inputs.size() != targets.size())
+            throw new IllegalArgumentException("Inputs and targets must be the same length");
+        supportSize = 0;
+        bias = 0.0;
+        cache.clear();
+
+        long time = 0;
+        byte target, prediction;
+        FeatureVector currentInput;
+        for (int i = 0; i < nIter; i++) {
+            int mistakes = 0;
+            for (int j = 0; j < inputs.size(); j++) {
+                target = targets.get(j);
+                currentInput = inputs.get(j);
+                prediction = trainingMargin(j, currentInput) >= 0 ? (byte) 1 : (byte) -1;
+                if (prediction != target) {
+                    addSupport(j, currentInput, lr * target, time);
+                    bias += lr * target;
+                    mistakes++;
+                }
+                time++;
+            }
+            if (mistakes == 0)
+                break;
+        }
+    }
+
+    private double trainingMargin(int id, FeatureVector input) {
+        double margin = bias;
+        for (int k = 0; k < supportSize; k++)
+            margin += coefficients[k] * cache.get(supportIds[k], supportVectors[k], id, input);
+        return margin;
+    }
+
+    private void addSupport(int id, FeatureVector input, double coefficient, long time) {
+        for (int k = 0; k < supportSize; k++) {
+            if (supportIds[k] == id) {
+                coefficients[k] += coefficient;
+                return;
+            }
+        }
+        if (supportSize == budget)
+            removeSupport(selectForRemoval());
+        if (supportSize == supportVectors.length) {
+            int capacity = (int) Math.min(budget, 2L * supportVectors.length);
+            supportVectors = Arrays.copyOf(supportVectors, capacity);
+            supportIds = Arrays.copyOf(supportIds, capacity);
+            coefficients = Arrays.copyOf(coefficients, capacity);
+            addedAt = Arrays.copyOf(addedAt, capacity);
+        }
+        supportVectors[supportSize] = input;
+        supportIds[supportSize] = id;
+        coefficients[supportSize] = coefficient;
+        addedAt[supportSize] = time;
+        supportSize++;
+    }
+
+    private int selectForRemoval() {
+        int selected = 0;
+        for (int k = 1; k < supportSize; k++) {
+            boolean better = removalPolicy == RemovalPolicy.OLDEST
+                    ? addedAt[k] < addedAt[selected]
+                    : Math.abs(coefficients[k]) < Math.abs(coefficients[selected]);
+            if (better)
+                selected = k;
+        }
+        return selected;
+    }
+
+    private void removeSupport(int k) {
+        int last = --supportSize;
+        supportVectors[k] = supportVectors[last];
+        supportIds[k] = supportIds[last];
+        coefficients[k] = coefficients[last];
+        addedAt[k] = addedAt[last];
+        supportVectors[last] = null;
+    }
+
+    /**
+     * @param vector an input
+     * @return the weighted sum of the kernel evaluations between the input and every
+     * support vector, plus the bias
+     */
+    public double margin(FeatureVector vector) {
+        double margin = bias;
+        for (int k = 0; k < supportSize; k++)
+            margin += coefficients[k] * cache.evaluate(supportVectors[k], vector);
+        return margin;
+    }
+
+    public byte predictSingleInput(FeatureVector vector) {
+        return margin(vector) >= 0 ? (byte) 1 : (byte) -1;
+    }
+
+    @Override
+    public List<Byte> predict(FeatureMatrix inputs) {
+        List<Byte> predictions = new ArrayList<>(inputs.size());
+        for (FeatureVector input : inputs)
+            predictions.add(predictSingleInput(input));
+        lastPredictions = predictions;
+        return predictions;
+    }
+
+    /**
+     * Scores the predictions of the last call to {@link #predict(FeatureMatrix)} against
+     * the true targets, taking 1 as the positive class.
+     * @param targets the target of each input last predicted
+     * @return the precision, recall and f1-score on the positive class
+     */
+    @Override
+    public Scores validate(List<Byte> targets) {
+        if (lastPredictions == null)
+            throw new IllegalStateException("No predictions to validate");
+        if (targets.size() != lastPredictions.size())
+            throw new IllegalArgumentException("Targets and predictions must be the same length");
+        return new Evaluator<>(lastPredictions, targets, Collections.singleton((byte) 1)).getMacroAverages();
+    }
+
+    /**
+     * @return the fraction of kernel lookups during training answered from the cache
+     */
+    public double getCacheHitRate() {
+        return cache.hitRate();
+    }
+
+    /**
+     * @return the number of kernel evaluations per second of time spent evaluating the
+     * kernel, during both training and prediction
+     */
+    public double getKernelEvaluationsPerSecond() {
+        return cache.evaluationsPerSecond();
+    }
+
+    public long getKernelEvaluations() {
+        return cache.evaluations();
+    }
+
+    public int getSupportSize() {
+        return supportSize;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public Kernel getKernel() {
+        return cache.kernel();
+    }
+
+    public RemovalPolicy getRemovalPolicy() {
+        return removalPolicy;
+    }
+
+    public void setRemovalPolicy(RemovalPolicy removalPolicy) {
+        this.removalPolicy = removalPolicy;
+    }
+
+    public double getBias() {
+        return bias;
+    }
+
+    public double getLr() {
+        return lr;
+    }
+
+    public void setLr(double lr) {
+        this.lr = lr;
+    }
+
+    public int getnIter() {
+        return nIter;
+    }
+
+    public void setnIter(int nIter) {
+        this.nIter = nIter;
+    }
+}
@@ -0,0 +1,38 @@
+package Models;
+
+import Vectors.FeatureMatrix;
+import Vectors.WeightVector;
+
+import java.util.List;
+
+/**
+ * A model whose state is entirely a <code>WeightVector</code> and its bias, so that
+ * copies of it can be trained separately and their weights combined.
+ */
+public interface LinearModel<N extends Number> extends Model<N> {
+
+    /**
+     * Trains under a controller that decides the order of every epoch and when to stop.
+     * @param inputs the training inputs
+     * @param targets the target of each input
+     * @param controller the controller, which records the mistakes of every epoch
+     */
+    public void fit(FeatureMatrix inputs, List<N> targets, TrainingController<N> controller);
+
+    public WeightVector getWeights();
+
+    public void setWeights(WeightVector weights);
+
+    public int getnFeatures();
+
+    public int getnIter();
+
+    public void setnIter(int nIter);
+
+    /**
+     * @param weights the weights of the copy
+     * @return a model with the same hyperparameters as this one but the given weights
+     */
+    public LinearModel<N> withWeights(WeightVector weights);
+
+}
@@ -0,0 +1,261 @@
+package Models;
+
+import DataLoaders.IsearDataLoader;
+import Evaluation.Evaluator;
+import Evaluation.Scores;
+import Vectors.FeatureMatrix;
+import Vectors.FeatureVector;
+import Vectors.NonZeroCursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A perceptron over any number of classes. The weights of all classes are kept in one
+ * flat array laid out feature by feature, so that the weights a single feature
+ * contributes to every class sit next to each other and all classes are scored in one
+ * pass over the non-zero elements of an input. Classes are identified by their
+ * position in the label array.
+ */
+public class MultiClassPerceptron implements Model<Integer> {
+
+    private double lr, theta;
+    private int nFeatures, nIter;
+    private final String[] labels;
+    private double[] weights, biases;
+    private List<Integer> lastPredictions;
+
+    private final int DEFAULT_NUM_ITER = 5;
+
+    /**
+     * Creates a perceptron over the ISEAR emotions.
+     * @param lr the learning rate
+     * @param theta the initial bias of every class
+     * @param nFeatures the length of the input vectors
+     */
+    public MultiClassPerceptron(double lr, double theta, int nFeatures) {
+        this(lr, theta, nFeatures, IsearDataLoader.EMOTIONS);
+    }
+
+    /**
+     * Creates a perceptron over an arbitrary set of labels.
+     * @param lr the learning rate
+     * @param theta the initial bias of every class
+     * @param nFeatures the length of the input vectors
+     * @param labels the label of each class id
+     * @throws IllegalArgumentException if there are fewer than two labels, or more
+     * weights than fit in one array
+     */
+    public MultiClassPerceptron(double lr, double theta, int nFeatures, String[] labels) {
+        if (labels.length < 2)
+            throw new IllegalArgumentException("At least two classes are required");
+        // every weight offset is below nFeatures * nClasses, so checking the product once
+        // here keeps the int offset arithmetic in fit and predict from overflowing
+        long nWeights = (long) nFeatures * labels.length;
+        if (nWeights > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("A perceptron holds at most " + Integer.MAX_VALUE
+                    + " weights, but " + nFeatures + " features and " + labels.length
+                    + " classes need " + nWeights + ".");
+        this.lr = lr;
+        this.theta = theta;
+        this.nFeatures = nFeatures;
+        this.labels = labels.clone();
+        this.nIter = DEFAULT_NUM_ITER;
+    }
+
+    private void initializeWeights() {
+        int nClasses = labels.length;
+        weights = new double[nFeatures * nClasses];
+        for (int i = 0; i < weights.length; i++)
+            weights[i] = Math.random();
+        biases = new double[nClasses];
+        Arrays.fill(biases, theta);
+    }
+
+    @Override
+    public void fit(FeatureMatrix inputs, List<Integer> targets) {
+        if (inputs.size() != targets.size())
+            throw new IllegalArgumentException("Inputs and targets must be the same length");
+        if (weights == null)
+            initializeWeights();
+
+        NonZeroCursor cursor = new NonZeroCursor();
+        double[] scores = new double[labels.length];
+        int target, prediction;
+
+        for (int i = 0; i < nIter; i++) {
+            for (int j = 0; j < inputs.size(); j++) {
+                target = targets.get(j);
+                if (target < 0 || target >= labels.length)
+                    throw new IllegalArgumentException("Unknown class id: " + target);
+                inputs.get(j).nonZeroCursor(cursor);
+                prediction = argMax(score(cursor, scores));
+                if (prediction == target)
+                    continue;
+                update(cursor, target, lr);
+                update(cursor, prediction, -lr);
+            }
+        }
+    }
+
+    /**
+     * Adds a scaled input to the weights and bias of a single class.
+     */
+    private void update(NonZeroCursor cursor, int label, double scalar) {
+        int nClasses = labels.length;
+        cursor.rewind();
+        while (cursor.next())
+            weights[cursor.index() * nClasses + label] += scalar * cursor.value();
+        biases[label] += scalar;
+    }
+
+    /**
+     * Scores every class against the non-zero elements under a cursor.
+     */
+    private double[] score(NonZeroCursor cursor, double[] scores) {
+        int nClasses = labels.length;
+        System.arraycopy(biases, 0, scores, 0, nClasses);
+        cursor.rewind();
+        while (cursor.next()) {
+            int offset = cursor.index() * nClasses;
+            double value = cursor.value();
+            for (int c = 0; c < nClasses; c++)
+                scores[c] += value * weights[offset + c];
+        }
+        return scores;
+    }
+
+    private static int argMax(double[] scores) {
+        int best = 0;
+        for (int c = 1; c < scores.length; c++)
+            if (scores[c] > scores[best])
+                best = c;
+        return best;
+    }
+
+    public void fitFromStrings(FeatureMatrix inputs, List<String> targets) {
+        List<Integer> classIds = new ArrayList<>(targets.size());
+        for (String target : targets)
+            classIds.add(classId(target));
+        fit(inputs, classIds);
+    }
+
+    /**
+     * Scores every class for a single input.
+     * @param vector the input to score
+     * @return the score of each class id
+     */
+    public double[] scores(FeatureVector vector) {
+        if (weights == null)
+            throw new IllegalStateException("Model has not been fit");
+        return score(vector.nonZeroCursor(), new double[labels.length]);
+    }
+
+    public int predictSingleInput(FeatureVector vector) {
+        return argMax(scores(vector));
+    }
+
+    @Override
+    public List<Integer> predict(FeatureMatrix inputs) {
+        if (weights == null)
+            throw new IllegalStateException("Model has not been fit");
+        NonZeroCursor cursor = new NonZeroCursor();
+        double[] scores = new double[labels.length];
+        List<Integer> predictions = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            inputs.get(i).nonZeroCursor(cursor);
+            predictions.add(argMax(score(cursor, scores)));
+        }
+        lastPredictions = predictions;
+        return predictions;
+    }
+
+    /**
+     * Predicts the label strings of every input.
+     * @param inputs the inputs to label
+     * @return the predicted label of each input
+     */
+    public List<String> predictStrings(FeatureMatrix inputs) {
+        List<Integer> predictions = predict(inputs);
+        List<String> strings = new ArrayList<>(predictions.size());
+        for (int prediction : predictions)
+            strings.add(labels[prediction]);
+        return strings;
+    }
+
+    /**
+     * Scores the predictions of the last call to {@link #predict(FeatureMatrix)} against
+     * the true class ids, macro-averaged over all classes.
+     * @param targets the true class id of each input last predicted
+     * @return the macro-averaged precision, recall and f1-score
+     */
+    @Override
+    public Scores validate(List<Integer> targets) {
+        if (lastPredictions == null)
+            throw new IllegalStateException("No predictions to validate");
+        if (targets.size() != lastPredictions.size())
+            throw new IllegalArgumentException("Targets and predictions must be the same length");
+        Set<Integer> classIds = new HashSet<>();
+        for (int c = 0; c < labels.length; c++)
+            classIds.add(c);
+        return new Evaluator<>(lastPredictions, targets, classIds).getMacroAverages();
+    }
+
+    /**
+     * @param label a label string
+     * @return the class id of <code>label</code>
+     */
+    public int classId(String label) {
+        for (int c = 0; c < labels.length; c++)
+            if (labels[c].equals(label))
+                return c;
+        throw new IllegalArgumentException("Unknown label: " + label);
+    }
+
+    /**
+     * @param classId a class id
+     * @return the label string of <code>classId</code>
+     */
+    public String getLabel(int classId) {
+        return labels[classId];
+    }
+
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    public int getnClasses() {
+        return labels.length;
+    }
+
+    public double getLr() {
+        return lr;
+    }
+
+    public void setLr(double lr) {
+        this.lr = lr;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    public void setTheta(double theta) {
+        this.theta = theta;
+    }
+
+    public int getnFeatures() {
+        return nFeatures;
+    }
+
+    public int getnIter() {
+        return nIter;
+    }
+
+    public void setnIter(int nIter) {
+        this.nIter = nIter;
+    }
+}
@@ -0,0 +1,187 @@
+package Models;
+
+import Vectors.FeatureMatrix;
+import Vectors.FeatureVector;
+import Vectors.WeightVector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Trains a <code>LinearModel</code> on several threads by iterative parameter mixing.
+ * The inputs are shuffled once with a seeded generator and split into fixed shards.
+ * Every epoch, one replica of the model per shard is trained for a single epoch from
+ * the current weights, and the replicas' weights and biases are then averaged pairwise
+ * in a fixed tree order. Each replica visits its shard in an order seeded from the
+ * trainer's seed, the shard and the epoch. Unlike lock-free training, the result
+ * depends only on the seed and the number of shards, never on how the threads happen
+ * to be scheduled. (It does depend on whether the vector API is enabled, since the
+ * vectorized dot product sums in a different order than the scalar one.)
+ * @param <N> the target type of the model
+ */
+public class ParameterMixingTrainer<N extends Number> {
+
+    private final int nShards;
+    private final long seed;
+    private int nThreads;
+
+    /**
+     * @param nShards the number of shards, and so of replicas trained each epoch
+     * @param seed the seed with which the inputs are assigned to shards
+     */
+    public ParameterMixingTrainer(int nShards, long seed) {
+        if (nShards < 1)
+            throw new IllegalArgumentException("Shard count must be a positive integer.");
+        this.nShards = nShards;
+        this.seed = seed;
+        this.nThreads = Math.min(nShards, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Trains a model for as many epochs as its <code>nIter</code>. A model without
+     * weights starts from zeros. The mixed weights are stored in the model.
+     * @param model the model to train
+     * @param inputs the training inputs
+     * @param targets the target of each input
+     */
+    public void fit(LinearModel<N> model, FeatureMatrix inputs, List<N> targets) {
+        if (inputs.size() != targets.size())
+            throw new IllegalArgumentException("Inputs and targets must be the same length");
+        if (inputs.size() < nShards)
+            throw new IllegalArgumentException("Fewer inputs than shards");
+        inputs.materialize();
+
+        List<FeatureMatrix> shardInputs = new ArrayList<>(nShards);
+        List<List<N>> shardTargets = new ArrayList<>(nShards);
+        shard(inputs, targets, shardInputs, shardTargets);
+
+        WeightVector weights = model.getWeights();
+        if (weights == null)
+            weights = new WeightVector(model.getnFeatures());
+
+        int nEpochs = model.getnIter();
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            for (int epoch = 0; epoch < nEpochs; epoch++)
+                weights = mixEpoch(model, weights, epoch, shardInputs, shardTargets, executor);
+        } finally {
+            executor.shutdown();
+        }
+        model.setWeights(weights);
+    }
+
+    private void shard(FeatureMatrix inputs, List<N> targets,
+                       List<FeatureMatrix> shardInputs, List<List<N>> shardTargets) {
+        List<Integer> order = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++)
+            order.add(i);
+        Collections.shuffle(order, new Random(seed));
+
+        for (int s = 0; s < nShards; s++) {
+            int from = (int) ((long) inputs.size() * s / nShards);
+            int to = (int) ((long) inputs.size() * (s + 1) / nShards);
+            FeatureVector[] rows = new FeatureVector[to - from];
+            List<N> rowTargets = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                rows[i - from] = inputs.get(order.get(i));
+                rowTargets.add(targets.get(order.get(i)));
+            }
+            shardInputs.add(new FeatureMatrix(rows));
+            shardTargets.add(rowTargets);
+        }
+    }
+
+    private WeightVector mixEpoch(LinearModel<N> model, WeightVector weights, int epoch,
+                                  List<FeatureMatrix> shardInputs, List<List<N>> shardTargets,
+                                  ExecutorService executor) {
+        List<Callable<WeightVector>> replicas = new ArrayList<>(nShards);
+        for (int s = 0; s < nShards; s++) {
+            LinearModel<N> replica = model.withWeights(new WeightVector(weights.getVector().clone(), weights.getBias()));
+            replica.setnIter(1);
+            FeatureMatrix replicaInputs = shardInputs.get(s);
+            List<N> replicaTargets = shardTargets.get(s);
+            TrainingController<N> controller = new TrainingController<>(replicaSeed(s, epoch));
+            replicas.add(() -> {
+                replica.fit(replicaInputs, replicaTargets, controller);
+                return replica.getWeights();
+            });
+        }
+
+        // results are collected by shard, not by completion, so the reduction order is fixed
+        WeightVector[] trained = new WeightVector[nShards];
+        try {
+            List<Future<WeightVector>> futures = executor.invokeAll(replicas);
+            for (int s = 0; s < nShards; s++)
+                trained[s] = futures.get(s).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during training", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training failed on a replica", e.getCause());
+        }
+        return average(trained);
+    }
+
+    /**
+     * Derives the seed of the order in which one replica visits its shard in one epoch.
+     * Every shard and epoch gets its own order, and all of them follow from the trainer's
+     * seed alone.
+     */
+    private long replicaSeed(int shard, int epoch) {
+        long h = seed ^ ((long) epoch << 32 | shard);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Averages weight vectors by summing neighbouring pairs, then neighbouring pairs of
+     * sums, and so on, so that every run adds the same values in the same order.
+     */
+    private static WeightVector average(WeightVector[] vectors) {
+        WeightVector[] sums = new WeightVector[vectors.length];
+        for (int s = 0; s < vectors.length; s++)
+            sums[s] = new WeightVector(vectors[s].getVector(), vectors[s].getBias());
+
+        for (int step = 1; step < sums.length; step *= 2) {
+            for (int s = 0; s + step < sums.length; s += 2 * step) {
+                sums[s].additionInPlace(sums[s + step]);
+                sums[s].setBias(sums[s].getBias() + sums[s + step].getBias());
+            }
+        }
+        WeightVector mean = sums[0];
+        mean.divideInPlace(vectors.length);
+        mean.setBias(mean.getBias() / vectors.length);
+        return mean;
+    }
+
+    public int getnShards() {
+        return nShards;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getnThreads() {
+        return nThreads;
+    }
+
+    /**
+     * Sets the number of threads the replicas are trained on. Has no effect on the
+     * result.
+     * @param nThreads the number of threads
+     */
+    public void setnThreads(int nThreads) {
+        if (nThreads < 1)
+            throw new IllegalArgumentException("Thread count must be a positive integer.");
+        this.nThreads = nThreads;
+    }
+}
@@ -1,20 +1,37 @@
 package Models;
 
+import DataLoaders.DataPoint;
+import Evaluation.QuantizationReport;
 import Evaluation.Scores;
+import Evaluation.ThroughputReport;
+import FeatureExtraction.FeatureExtractor;
 import Vectors.FeatureMatrix;
 import Vectors.FeatureVector;
+import Vectors.FloatWeightVector;
+import Vectors.QuantizedWeightVector;
 import Vectors.WeightVector;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
-// TODO Store class labels somehow
-public class Perceptron implements Model<Byte> {
+public class Perceptron implements LinearModel<Byte> {
 
     private double lr, theta;
     private int nFeatures, nIter;
     private WeightVector weights;
+    private boolean averaged;
+    // the labels of the positive and negative class, once fit from strings
+    private String[] labels;
 
     private final int DEFAULT_NUM_ITER = 5;
 
@@ -30,26 +47,211 @@ public class Perceptron implements Model<Byte> {
         this.nIter = DEFAULT_NUM_ITER;
     }
 
+    /**
+     * Trains for at most <code>nIter</code> epochs, each visiting the inputs in a new
+     * shuffled order, and stops as soon as an epoch makes no mistakes.
+     */
     @Override
     public void fit(FeatureMatrix inputs, List<Byte> targets) {
+        fit(inputs, targets, new TrainingController<>());
+    }
+
+    /**
+     * Trains for at most <code>nIter</code> epochs under a controller that decides the
+     * order of every epoch and when to stop.
+     * @param inputs the training inputs
+     * @param targets the target of each input
+     * @param controller the controller, which records the mistakes of every epoch
+     */
+    @Override
+    public void fit(FeatureMatrix inputs, List<Byte> targets, TrainingController<Byte> controller) {
+        if (inputs.size() != targets.size())
+            throw new IllegalArgumentException("Inputs and targets must be the same length");
         if (weights == null) {
             weights = WeightVector.randomInitialize(nFeatures, theta);
         }
 
+        byte target, prediction;
+        FeatureVector currentInput;
+        int mistakes;
+
+        // Averaged mode keeps the running sum of c * update in an accumulator u, where
+        // c counts the examples seen before it. The average of the weights after every
+        // example is then w - u / c, so no update touches more than the input's non-zeros.
+        WeightVector accumulator = averaged ? new WeightVector(nFeatures) : null;
+        long counter = 0;
+
+        controller.start();
+        for (int i = 0; i < nIter; i++) {
+            mistakes = 0;
+            for (int j : controller.nextPermutation(inputs.size())) {
+                target = targets.get(j);
+                currentInput = inputs.get(j);
+
+                prediction = step(currentInput, target);
+                if (prediction != target) {
+                    mistakes++;
+                    if (averaged) {
+                        double update = lr * (target - prediction);
+                        accumulator.scaledAdditionInPlace(counter * update, currentInput);
+                        accumulator.setBias(accumulator.getBias() + counter * update);
+                    }
+                }
+                counter++;
+            }
+
+            // only the held-out evaluation needs the averaged weights mid-training
+            Perceptron current = this;
+            if (averaged && controller.hasHeldOut())
+                current = withWeights(averagedWeights(accumulator, counter));
+            if (controller.endEpoch(mistakes, current))
+                break;
+        }
+
+        WeightVector best = controller.getBestWeights();
+        if (best != null) {
+            weights.update(best);
+            weights.setBias(best.getBias());
+        } else if (averaged && counter > 0) {
+            weights.scaledAdditionInPlace(-1.0 / counter, accumulator);
+            weights.setBias(weights.getBias() - accumulator.getBias() / counter);
+        }
+    }
+
+    private WeightVector averagedWeights(WeightVector accumulator, long counter) {
+        WeightVector average = new WeightVector(weights.getVector().clone(), weights.getBias());
+        if (counter > 0) {
+            average.scaledAdditionInPlace(-1.0 / counter, accumulator);
+            average.setBias(average.getBias() - accumulator.getBias() / counter);
+        }
+        return average;
+    }
+
+    /**
+     * Predicts a single input and, on a mistake, moves the weights and bias toward it.
+     * @return the prediction made before the update
+     */
+    private byte step(FeatureVector input, byte target) {
+        byte prediction = predictSingleInput(input);
+        if (prediction != target) {
+            double update = lr * (target - prediction);
+            weights.scaledAdditionInPlace(update, input);
+            weights.setBias(weights.getBias() + update);
+        }
+        return prediction;
+    }
+
+    /**
+     * Updates the model with a single example. Weights are initialized on the first
+     * call, as in <code>fit</code>. Updates are never averaged.
+     * @param input the input
+     * @param target 1 or -1
+     * @return whether the model mispredicted the input
+     */
+    public boolean partialFit(FeatureVector input, byte target) {
+        if (weights == null)
+            weights = WeightVector.randomInitialize(nFeatures, theta);
+        return step(input, target) != target;
+    }
+
+    /**
+     * Trains on a stream of data points in a single pass, vectorizing and learning from
+     * each point as it arrives. Neither the points nor their vectors are kept, so memory
+     * use does not grow with the length of the stream, which may be unbounded.
+     * @param points the training data
+     * @param extractor the extractor with which to vectorize each point's tokens
+     * @param positiveLabel the label of the positive class; every other label is negative
+     * @return the number of points the model mispredicted
+     */
+    public long fitOnline(Iterator<DataPoint> points, FeatureExtractor extractor, String positiveLabel) {
+        if (extractor.featureCount() != nFeatures)
+            throw new IllegalArgumentException("Extractor does not produce vectors of length " + nFeatures);
+        long mistakes = 0;
+        DataPoint point;
+        while (points.hasNext()) {
+            point = points.next();
+            byte target = positiveLabel.equals(point.getTarget()) ? (byte) 1 : (byte) -1;
+            if (partialFit(extractor.vectorize(point.getTokens()), target))
+                mistakes++;
+        }
+        return mistakes;
+    }
+
+    /**
+     * Trains on several threads at once, Hogwild-style. Each thread runs every epoch over
+     * its own contiguous shard of the inputs and adds its sparse updates to the shared
+     * weights without locking; the occasional lost update is tolerated since the inputs
+     * rarely share non-zeros. The bias, which every update touches, is updated atomically.
+     * Averaging is not supported in this mode.
+     * @param inputs the training inputs
+     * @param targets the target of each input
+     * @param nThreads the number of threads to train on
+     * @return the throughput of the run
+     */
+    public ThroughputReport fitParallel(FeatureMatrix inputs, List<Byte> targets, int nThreads) {
+        if (nThreads < 1)
+            throw new IllegalArgumentException("Thread count must be a positive integer.");
+        if (averaged)
+            throw new UnsupportedOperationException("Averaging is not supported in parallel training.");
+        if (inputs.size() != targets.size())
+            throw new IllegalArgumentException("Inputs and targets must be the same length");
+        if (weights == null)
+            weights = WeightVector.randomInitialize(nFeatures, theta);
+        inputs.materialize();
+
+        AtomicLong bias = new AtomicLong(Double.doubleToLongBits(weights.getBias()));
+        int nShards = Math.min(nThreads, Math.max(inputs.size(), 1));
+        List<Callable<Void>> shards = new ArrayList<>(nShards);
+        for (int t = 0; t < nShards; t++) {
+            int from = (int) ((long) inputs.size() * t / nShards);
+            int to = (int) ((long) inputs.size() * (t + 1) / nShards);
+            shards.add(() -> {
+                fitShard(inputs, targets, from, to, bias);
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(nShards);
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> shard : executor.invokeAll(shards))
+                shard.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during training", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Training failed on a worker thread", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        weights.setBias(Double.longBitsToDouble(bias.get()));
+        return new ThroughputReport((long) inputs.size() * nIter, inputs.nonZeroCount() * nIter,
+                nShards, elapsed);
+    }
+
+    private void fitShard(FeatureMatrix inputs, List<Byte> targets, int from, int to, AtomicLong bias) {
         double update;
         byte target, prediction;
         FeatureVector currentInput;
 
         for (int i = 0; i < nIter; i++) {
-            for (int j = 0; j < inputs.size(); j++) {
-                target = targets.get(i);
-                currentInput = inputs.get(i);
-                prediction = predictSingleInput(currentInput);
+            for (int j = from; j < to; j++) {
+                target = targets.get(j);
+                currentInput = inputs.get(j);
+                double margin = weights.dot(currentInput) + Double.longBitsToDouble(bias.get());
+                prediction = margin >= 0 ? (byte) 1 : (byte) -1;
 
                 update = lr * (target - prediction);
-                currentInput.multiplyInPlace(update);
-                weights.additionInPlace(currentInput);
-                weights.setBias(weights.getBias() + update);
+                if (update == 0)
+                    continue;
+                weights.scaledAdditionInPlace(update, currentInput);
+                long current, next;
+                do {
+                    current = bias.get();
+                    next = Double.doubleToLongBits(Double.longBitsToDouble(current) + update);
+                } while (!bias.compareAndSet(current, next));
             }
         }
     }
@@ -58,6 +260,21 @@ public class Perceptron implements Model<Byte> {
         fit(inputs, convertStringToByte(targets));
     }
 
+    /**
+     * Predicts the label strings of every input, for a model fit from strings.
+     * @param inputs the inputs to label
+     * @return the predicted label of each input
+     */
+    public List<String> predictStrings(FeatureMatrix inputs) {
+        if (labels == null)
+            throw new IllegalStateException("Model has not been fit from strings");
+        byte[] predictions = predictLabels(inputs);
+        List<String> strings = new ArrayList<>(predictions.length);
+        for (byte prediction : predictions)
+            strings.add(prediction == 1 ? labels[0] : labels[1]);
+        return strings;
+    }
+
     private List<Byte> convertStringToByte(List<String> strings) {
         if (strings.size() < 1)
             throw new IllegalArgumentException("Container is empty");
@@ -68,6 +285,9 @@ public class Perceptron implements Model<Byte> {
         if (labelSet.size() != 2)
             throw new IllegalArgumentException("More than two classes in label set");
 
+        labelSet.remove(primaryClass);
+        labels = new String[] {primaryClass, labelSet.iterator().next()};
+
         byte positive = 1, negative = -1;
         for (String s : strings) {
             if (s.equals(primaryClass)) retList.add(positive);
@@ -77,20 +297,89 @@ public class Perceptron implements Model<Byte> {
     }
 
     public byte predictSingleInput(FeatureVector vector) {
-        if (vector.dot(weights) + weights.getBias() >= 0) return 1;
+        if (weights.dot(vector) + weights.getBias() >= 0) return 1;
         else return -1;
     }
 
+    /**
+     * Scores every input in one pass over the matrix.
+     * @param inputs the inputs to score
+     * @return the raw margin <code>w . x + b</code> of each input; the predicted label
+     * is positive where the margin is at least zero
+     */
+    public double[] margins(FeatureMatrix inputs) {
+        double[] margins = inputs.dot(weights);
+        double bias = weights.getBias();
+        for (int i = 0; i < margins.length; i++)
+            margins[i] += bias;
+        return margins;
+    }
+
+    /**
+     * Predicts the labels of every input in one pass over the matrix.
+     * @param inputs the inputs to label
+     * @return 1 or -1 for each input
+     */
+    public byte[] predictLabels(FeatureMatrix inputs) {
+        double[] margins = margins(inputs);
+        byte[] labels = new byte[margins.length];
+        for (int i = 0; i < margins.length; i++)
+            labels[i] = margins[i] >= 0 ? (byte) 1 : (byte) -1;
+        return labels;
+    }
+
     @Override
     public List<Byte> predict(FeatureMatrix inputs) {
-        List<Byte> predictions = new ArrayList<>(inputs.size());
-        for (int i = 0; i < inputs.size(); i++) {
-            FeatureVector input = inputs.get(i);
-            predictions.add(predictSingleInput(input));
-        }
+        byte[] labels = predictLabels(inputs);
+        List<Byte> predictions = new ArrayList<>(labels.length);
+        for (byte label : labels)
+            predictions.add(label);
         return predictions;
     }
 
+    /**
+     * Converts a trained model to one whose weights are stored in single precision.
+     * @return a copy of this model with <code>float</code> weights
+     */
+    public Perceptron toFloat() {
+        checkFitted();
+        return withWeights(FloatWeightVector.fromWeights(weights));
+    }
+
+    /**
+     * Converts a trained model to one whose weights are quantized to eight bits.
+     * @return a copy of this model with int8 weights
+     */
+    public Perceptron quantize() {
+        checkFitted();
+        return withWeights(QuantizedWeightVector.quantize(weights));
+    }
+
+    private void checkFitted() {
+        if (weights == null)
+            throw new IllegalStateException("Model has not been fit");
+    }
+
+    @Override
+    public Perceptron withWeights(WeightVector newWeights) {
+        Perceptron copy = new Perceptron(lr, theta, newWeights);
+        copy.setnIter(nIter);
+        copy.setAveraged(averaged);
+        copy.labels = labels;
+        return copy;
+    }
+
+    /**
+     * Measures how much accuracy a converted model gives up relative to this one.
+     * @param converted a model obtained from {@link #toFloat()} or {@link #quantize()}
+     * @param inputs held-out inputs
+     * @param targets the targets of the held-out inputs
+     * @return a report comparing the predictions of both models
+     */
+    public QuantizationReport<Byte> quantizationReport(Perceptron converted, FeatureMatrix inputs, List<Byte> targets) {
+        return new QuantizationReport<>(predict(inputs), converted.predict(inputs), targets);
+    }
+
     // TODO
     @Override
     public Scores validate(List targets) {
@@ -113,22 +402,75 @@ public class Perceptron implements Model<Byte> {
         this.theta = theta;
     }
 
+    @Override
     public int getnFeatures() {
         return nFeatures;
     }
 
+    @Override
     public WeightVector getWeights() {
         return weights;
     }
 
+    @Override
     public void setWeights(WeightVector weights) {
         this.weights = weights;
     }
 
+    /**
+     * Writes the model to a file in the binary format read by {@link #load(Path)}.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        checkFitted();
+        PerceptronFormat.write(this, path);
+    }
+
+    /**
+     * Loads a model written by {@link #save(Path)}. The weights are memory-mapped
+     * read-only rather than read, so loading takes the same time whatever the size of
+     * the model. Such a model can predict straight away; to train it further, first give
+     * it a heap copy of its weights.
+     * @param path the file to read
+     * @return the model stored in the file
+     * @throws IOException if the file cannot be read or is not a model file
+     */
+    public static Perceptron load(Path path) throws IOException {
+        return PerceptronFormat.read(path);
+    }
+
+    /**
+     * @return the labels of the positive and the negative class, or null if the model
+     * was not fit from strings
+     */
+    public String[] getLabels() {
+        return labels == null ? null : labels.clone();
+    }
+
+    void setLabels(String[] labels) {
+        this.labels = labels;
+    }
+
+    public boolean isAveraged() {
+        return averaged;
+    }
+
+    /**
+     * Sets whether <code>fit</code> leaves the model with the average of the weights
+     * after every example rather than the final weights, which are noisier.
+     * @param averaged whether to average the weights
+     */
+    public void setAveraged(boolean averaged) {
+        this.averaged = averaged;
+    }
+
+    @Override
     public int getnIter() {
         return nIter;
     }
 
+    @Override
     public void setnIter(int nIter) {
         this.nIter = nIter;
     }
@@ -0,0 +1,149 @@
+package Models;
+
+import Vectors.OffHeapWeightVector;
+import Vectors.WeightVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the binary model format of <code>Perceptron</code>. All values are
+ * little-endian, like those of <code>OffHeapWeightVector</code>:
+ * <pre>
+ *     int     magic ("PRCP")
+ *     int     version
+ *     double  lr
+ *     double  theta
+ *     int     nIter
+ *     int     nFeatures
+ *     double  bias
+ *     int     flags (bit 0: averaged)
+ *     int     number of labels, then for each: int byte length, UTF-8 bytes
+ *     padding to a multiple of eight bytes
+ *     double  weights[nFeatures]
+ * </pre>
+ * The weights are aligned so that they can be mapped in place.
+ */
+class PerceptronFormat {
+
+    static final int MAGIC = 0x50524350;
+    static final int VERSION = 1;
+
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int FIXED_HEADER_BYTES = 48;
+    private static final int FLAG_AVERAGED = 1;
+    private static final int WRITE_CHUNK = 8192;
+
+    private PerceptronFormat() {}
+
+    static void write(Perceptron model, Path path) throws IOException {
+        WeightVector weights = model.getWeights();
+        String[] labels = model.getLabels();
+        byte[][] encodedLabels = new byte[labels == null ? 0 : labels.length][];
+        int headerBytes = FIXED_HEADER_BYTES;
+        for (int i = 0; i < encodedLabels.length; i++) {
+            encodedLabels[i] = labels[i].getBytes(StandardCharsets.UTF_8);
+            headerBytes += 4 + encodedLabels[i].length;
+        }
+        headerBytes = align(headerBytes);
+
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(BYTE_ORDER);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putDouble(model.getLr());
+        header.putDouble(model.getTheta());
+        header.putInt(model.getnIter());
+        header.putInt(weights.size());
+        header.putDouble(weights.getBias());
+        header.putInt(model.isAveraged() ? FLAG_AVERAGED : 0);
+        header.putInt(encodedLabels.length);
+        for (byte[] label : encodedLabels) {
+            header.putInt(label.length);
+            header.put(label);
+        }
+        header.rewind();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK * Double.BYTES).order(BYTE_ORDER);
+            for (int i = 0; i < weights.size(); i++) {
+                chunk.putDouble(weights.get(i));
+                if (!chunk.hasRemaining()) {
+                    chunk.flip();
+                    writeFully(channel, chunk);
+                    chunk.clear();
+                }
+            }
+            chunk.flip();
+            writeFully(channel, chunk);
+        }
+    }
+
+    static Perceptron read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, FIXED_HEADER_BYTES);
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a perceptron model file: " + path);
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported model version: " + version);
+            double lr = header.getDouble();
+            double theta = header.getDouble();
+            int nIter = header.getInt();
+            int nFeatures = header.getInt();
+            double bias = header.getDouble();
+            int flags = header.getInt();
+            int labelCount = header.getInt();
+            if (nFeatures < 0 || labelCount < 0)
+                throw new IOException("Corrupt model header: " + path);
+
+            long position = FIXED_HEADER_BYTES;
+            String[] labels = labelCount == 0 ? null : new String[labelCount];
+            for (int i = 0; i < labelCount; i++) {
+                int length = readFully(channel, position, 4).getInt();
+                if (length < 0 || position + 4 + length > channel.size())
+                    throw new IOException("Corrupt model header: " + path);
+                ByteBuffer label = readFully(channel, position + 4, length);
+                labels[i] = new String(label.array(), StandardCharsets.UTF_8);
+                position += 4 + length;
+            }
+
+            long weightsPosition = align(position);
+            if (channel.size() < weightsPosition + (long) nFeatures * Double.BYTES)
+                throw new IOException("Truncated model file: " + path);
+            OffHeapWeightVector weights = OffHeapWeightVector.map(channel, weightsPosition, nFeatures,
+                    bias, FileChannel.MapMode.READ_ONLY);
+
+            Perceptron model = new Perceptron(lr, theta, weights);
+            model.setnIter(nIter);
+            model.setAveraged((flags & FLAG_AVERAGED) != 0);
+            model.setLabels(labels);
+            return model;
+        }
+    }
+
+    private static int align(long position) {
+        return (int) ((position + Double.BYTES - 1) & -Double.BYTES);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Truncated model file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,41 @@
+package Models;
+
+import Vectors.FeatureVector;
+
+/**
+ * The kernel <code>(a . b + coef0)^degree</code>, which implicitly weighs every
+ * conjunction of up to <code>degree</code> features.
+ */
+public class PolynomialKernel implements Kernel {
+
+    private final int degree;
+    private final double coef0;
+
+    public PolynomialKernel(int degree) {
+        this(degree, 1.0);
+    }
+
+    public PolynomialKernel(int degree, double coef0) {
+        if (degree < 1)
+            throw new IllegalArgumentException("Degree must be a positive integer.");
+        this.degree = degree;
+        this.coef0 = coef0;
+    }
+
+    @Override
+    public double evaluate(FeatureVector a, FeatureVector b) {
+        double base = a.dot(b) + coef0;
+        double result = base;
+        for (int i = 1; i < degree; i++)
+            result *= base;
+        return result;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    public double getCoef0() {
+        return coef0;
+    }
+}
@@ -0,0 +1,30 @@
+package Models;
+
+import Vectors.FeatureVector;
+
+/**
+ * The Gaussian kernel <code>exp(-gamma * |a - b|^2)</code>. The squared distance is
+ * expanded as <code>|a|^2 + |b|^2 - 2 a . b</code> so that no difference vector is
+ * allocated.
+ */
+public class RbfKernel implements Kernel {
+
+    private final double gamma;
+
+    public RbfKernel(double gamma) {
+        if (gamma <= 0)
+            throw new IllegalArgumentException("Gamma must be positive.");
+        this.gamma = gamma;
+    }
+
+    @Override
+    public double evaluate(FeatureVector a, FeatureVector b) {
+        double lengthA = a.euclideanLength(), lengthB = b.euclideanLength();
+        double squaredDistance = lengthA * lengthA + lengthB * lengthB - 2 * a.dot(b);
+        return Math.exp(-gamma * Math.max(squaredDistance, 0.0));
+    }
+
+    public double getGamma() {
+        return gamma;
+    }
+}
@@ -0,0 +1,190 @@
+package Models;
+
+import Vectors.FeatureMatrix;
+import Vectors.WeightVector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Decides the order in which a model visits its training data and when it stops.
+ * Every epoch visits the examples through a fresh permutation drawn from a seeded
+ * generator, and training ends early once an epoch makes no mistakes. If a held-out set
+ * is given, training also ends once the held-out error has not improved for
+ * <code>patience</code> epochs, and the weights with the lowest held-out error are kept.
+ * @param <N> the target type of the model
+ */
+public class TrainingController<N extends Number> {
+
+    public static final long DEFAULT_SEED = 0L;
+    public static final int DEFAULT_PATIENCE = 1;
+
+    private final long seed;
+    private int patience;
+    private FeatureMatrix heldOutInputs;
+    private List<N> heldOutTargets;
+
+    private Random random;
+    private int[] permutation;
+    private final List<Integer> epochMistakes = new ArrayList<>();
+    private final List<Double> heldOutErrors = new ArrayList<>();
+    private WeightVector bestWeights;
+    private double bestError;
+    private int epochsSinceImprovement;
+    private boolean converged;
+
+    public TrainingController() {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * @param seed the seed from which the order of every epoch is drawn
+     */
+    public TrainingController(long seed) {
+        this.seed = seed;
+        this.patience = DEFAULT_PATIENCE;
+    }
+
+    /**
+     * Sets aside data on which to measure the error after every epoch.
+     * @param inputs the held-out inputs
+     * @param targets the targets of the held-out inputs
+     */
+    public void setHeldOut(FeatureMatrix inputs, List<N> targets) {
+        if (inputs.size() != targets.size())
+            throw new IllegalArgumentException("Inputs and targets must be the same length");
+        heldOutInputs = inputs;
+        heldOutTargets = targets;
+    }
+
+    /**
+     * @param patience the number of epochs without a lower held-out error after which
+     *                 training stops
+     */
+    public void setPatience(int patience) {
+        if (patience < 1)
+            throw new IllegalArgumentException("Patience must be a positive integer.");
+        this.patience = patience;
+    }
+
+    public int getPatience() {
+        return patience;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    boolean hasHeldOut() {
+        return heldOutInputs != null;
+    }
+
+    /**
+     * Clears the history of a previous run. Called by the model at the start of training,
+     * so a run with the same seed visits the examples in the same orders.
+     */
+    void start() {
+        random = new Random(seed);
+        permutation = null;
+        epochMistakes.clear();
+        heldOutErrors.clear();
+        bestWeights = null;
+        bestError = Double.POSITIVE_INFINITY;
+        epochsSinceImprovement = 0;
+        converged = false;
+    }
+
+    /**
+     * Shuffles the order in which the next epoch visits the examples. The same array is
+     * reused across epochs, so the training data itself is never copied or reordered.
+     * @param size the number of examples
+     * @return a permutation of <code>[0, size)</code>
+     */
+    int[] nextPermutation(int size) {
+        if (permutation == null || permutation.length != size) {
+            permutation = new int[size];
+            for (int i = 0; i < size; i++)
+                permutation[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+
+    /**
+     * Records the outcome of an epoch.
+     * @param mistakes the number of training examples mispredicted during the epoch
+     * @param model the model as it stands at the end of the epoch
+     * @return whether training should stop
+     */
+    boolean endEpoch(int mistakes, LinearModel<N> model) {
+        epochMistakes.add(mistakes);
+        converged = mistakes == 0;
+
+        if (heldOutInputs != null) {
+            double error = heldOutError(model);
+            heldOutErrors.add(error);
+            if (error < bestError) {
+                bestError = error;
+                WeightVector weights = model.getWeights();
+                bestWeights = new WeightVector(weights.getVector().clone(), weights.getBias());
+                epochsSinceImprovement = 0;
+            } else if (++epochsSinceImprovement >= patience) {
+                return true;
+            }
+        }
+        return converged;
+    }
+
+    private double heldOutError(LinearModel<N> model) {
+        List<N> predictions = model.predict(heldOutInputs);
+        int wrong = 0;
+        for (int i = 0; i < predictions.size(); i++) {
+            if (!predictions.get(i).equals(heldOutTargets.get(i)))
+                wrong++;
+        }
+        return (double) wrong / predictions.size();
+    }
+
+    /**
+     * @return the weights with the lowest held-out error, or null if there is no
+     * held-out set
+     */
+    WeightVector getBestWeights() {
+        return bestWeights;
+    }
+
+    /**
+     * @return the number of epochs the last run trained for
+     */
+    public int getEpochs() {
+        return epochMistakes.size();
+    }
+
+    /**
+     * @return the number of mistakes made on the training data in each epoch
+     */
+    public List<Integer> getEpochMistakes() {
+        return Collections.unmodifiableList(epochMistakes);
+    }
+
+    /**
+     * @return the held-out error after each epoch; empty if there is no held-out set
+     */
+    public List<Double> getHeldOutErrors() {
+        return Collections.unmodifiableList(heldOutErrors);
+    }
+
+    /**
+     * @return whether the last epoch made no mistakes, i.e. the training data is separated
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+}
@@ -53,8 +53,8 @@ public class CompressedFeatureVector extends FeatureVector {
         checkVectorSize(other);
         double dotProduct = 0.0;
 
-        for (int index : indexMap.keySet()) {
-            dotProduct += get(index) * other.get(index);
+        for (Map.Entry<Integer, Double> pair : indexMap.entrySet()) {
+            dotProduct += pair.getValue() * other.get(pair.getKey());
         }
 
         return dotProduct;
@@ -182,13 +182,14 @@ public class CompressedFeatureVector extends FeatureVector {
 
     @Override
     public void set(int index, double val) {
-        if (val == 0)
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException();
+        if (val == 0) {
+            indexMap.remove(index);
             return;
+        }
 
-        if (indexMap.containsKey(index))
-            indexMap.put(index, val);
-        else
-            indexMap.put(index, indexMap.get(index) + val);
+        indexMap.put(index, val);
     }
 
     @Override
@@ -222,13 +223,39 @@ public class CompressedFeatureVector extends FeatureVector {
     @Override
     public double[] getVector() {
         double[] vector = new double[length];
-        Iterator<Double> iter = iterator();
-        for (int i=0; i < length; i++) {
-            vector[i] = iter.next();
-        }
+        for (Map.Entry<Integer, Double> pair : indexMap.entrySet())
+            vector[pair.getKey()] = pair.getValue();
         return vector;
     }
 
+    @Override
+    public void forEachNonZero(NonZeroConsumer consumer) {
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            consumer.accept(cursor.index(), cursor.value());
+    }
+
+    /**
+     * Binds a cursor to the non-zero elements of the vector. Since the map keeps no
+     * order, the entries are copied into the cursor's own buffers and sorted by index.
+     * @param cursor the cursor to reuse
+     * @return <code>cursor</code>, positioned before the first non-zero element
+     */
+    @Override
+    public NonZeroCursor nonZeroCursor(NonZeroCursor cursor) {
+        int[] indices = cursor.indexBuffer(indexMap.size());
+        int count = 0;
+        for (int index : indexMap.keySet())
+            indices[count++] = index;
+        Arrays.sort(indices, 0, count);
+
+        double[] values = cursor.valueBuffer(count);
+        for (int k = 0; k < count; k++)
+            values[k] = indexMap.get(indices[k]);
+        cursor.resetToBuffers(count);
+        return cursor;
+    }
+
     public List<Double> nonZeros() {
         ArrayList<Double> retArray = new ArrayList<>(indexMap.size());
         retArray.addAll(indexMap.values());
@@ -237,8 +264,9 @@ public class CompressedFeatureVector extends FeatureVector {
 
     public List<Integer> nonZeroIndices() {
         ArrayList<Integer> retArray = new ArrayList<>(indexMap.size());
-        retArray.addAll(indexMap.keySet());
-        Collections.sort(retArray);
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            retArray.add(cursor.index());
         return retArray;
     }
 
@@ -265,26 +293,30 @@ public class CompressedFeatureVector extends FeatureVector {
 
     private class CompressedIterator implements Iterator<Double> {
 
-        private CompressedFeatureVector vector;
-        private List<Integer> nonZeroIndices;
+        private NonZeroCursor cursor;
+        private boolean hasNonZero;
         private int currentIndex;
 
         CompressedIterator(CompressedFeatureVector vector) {
-            this.vector = vector;
-            nonZeroIndices = vector.nonZeroIndices();
+            cursor = vector.nonZeroCursor();
+            hasNonZero = cursor.next();
             currentIndex = 0;
         }
 
         @Override
-        public boolean hasNext() { return currentIndex < vector.size(); }
+        public boolean hasNext() { return currentIndex < length; }
 
         @Override
         public Double next() {
-            currentIndex++;
-            if (nonZeroIndices.contains(currentIndex - 1))
-                return vector.get(currentIndex - 1);
-            else
-                return 0.0;
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int index = currentIndex++;
+            if (hasNonZero && cursor.index() == index) {
+                double value = cursor.value();
+                hasNonZero = cursor.next();
+                return value;
+            }
+            return 0.0;
         }
     }
 }
@@ -0,0 +1,82 @@
+package Vectors;
+
+/**
+ * Element-wise and reduction kernels over dense <code>double[]</code> storage, shared by
+ * <code>SparseFeatureVector</code>, <code>WeightVector</code> and compressed-row
+ * <code>FeatureMatrix</code> operations. Each method covers the elements
+ * <code>[from, to)</code> of its arrays; an output array may be the same as an input.
+ *
+ * The implementation is chosen once per JVM: <code>VectorizedKernels</code> when the
+ * <code>jdk.incubator.vector</code> module is present (start the JVM with
+ * <code>--add-modules jdk.incubator.vector</code>) and the class was compiled from the
+ * separate <code>src-vector</code> source root, {@link ScalarKernels} otherwise.
+ * Setting the system property <code>vectors.kernels=scalar</code> forces the scalar
+ * loops.
+ */
+abstract class DenseKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTORIZED_CLASS = "Vectors.VectorizedKernels";
+
+    private static final DenseKernels INSTANCE = load();
+
+    static DenseKernels get() {
+        return INSTANCE;
+    }
+
+    private static DenseKernels load() {
+        if ("scalar".equals(System.getProperty("vectors.kernels")))
+            return new ScalarKernels();
+        if (!ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent())
+            return new ScalarKernels();
+        try {
+            return (DenseKernels) Class.forName(VECTORIZED_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarKernels();
+        }
+    }
+
+    /**
+     * @return whether the kernels use the Vector API
+     */
+    abstract boolean isVectorized();
+
+    abstract void add(double[] a, double[] b, double[] out, int from, int to);
+
+    abstract void add(double[] a, double scalar, double[] out, int from, int to);
+
+    abstract void subtract(double[] a, double[] b, double[] out, int from, int to);
+
+    abstract void multiply(double[] a, double[] b, double[] out, int from, int to);
+
+    abstract void multiply(double[] a, double scalar, double[] out, int from, int to);
+
+    abstract void divide(double[] a, double[] b, double[] out, int from, int to);
+
+    abstract void divide(double[] a, double scalar, double[] out, int from, int to);
+
+    /**
+     * Element-wise <code>Math.pow</code>. Kept scalar in every implementation so that
+     * results do not depend on which kernels were loaded.
+     */
+    void pow(double[] a, double[] b, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = Math.pow(a[i], b[i]);
+    }
+
+    void pow(double[] a, double scalar, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = Math.pow(a[i], scalar);
+    }
+
+    /**
+     * Computes <code>y += scalar * x</code>.
+     */
+    abstract void axpy(double scalar, double[] x, double[] y, int from, int to);
+
+    abstract double dot(double[] a, double[] b, int from, int to);
+
+    abstract double sum(double[] a, int from, int to);
+
+    abstract double sumOfSquares(double[] a, int from, int to);
+}
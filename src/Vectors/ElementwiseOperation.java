@@ -0,0 +1,70 @@
+package Vectors;
+
+/**
+ * One deferred element-wise operation of a lazy <code>FeatureMatrix</code>: an operator
+ * together with either a scalar or a vector operand. A chain of these is applied to
+ * every element of a row in one pass when the matrix is materialized.
+ */
+final class ElementwiseOperation {
+
+    enum Operator { ADD, SUBTRACT, MULTIPLY, DIVIDE, POW }
+
+    private final Operator operator;
+    private final double scalar;
+    private final double[] operandValues;
+
+    private ElementwiseOperation(Operator operator, double scalar, double[] operandValues) {
+        this.operator = operator;
+        this.scalar = scalar;
+        this.operandValues = operandValues;
+    }
+
+    static ElementwiseOperation of(Operator operator, double scalar) {
+        return new ElementwiseOperation(operator, scalar, null);
+    }
+
+    /**
+     * Records an operation with a vector operand. The operand's values are copied here,
+     * once for the whole matrix rather than once per row, so that changes made to the
+     * operand before the matrix is materialized do not leak into the result.
+     */
+    static ElementwiseOperation of(Operator operator, FeatureVector operand) {
+        double[] values = operand.getVector();
+        if (SparseFeatureVector.isHeapBacked(operand))
+            values = values.clone();    // getVector() returned the operand's own array
+        return new ElementwiseOperation(operator, 0.0, values);
+    }
+
+    /**
+     * Whether the operation maps zero to zero, in which case it only has to be applied
+     * to the non-zero elements of a sparse row, as the eager compressed-row operations
+     * do.
+     */
+    boolean preservesZero() {
+        switch (operator) {
+            case MULTIPLY:
+            case DIVIDE:
+                return true;
+            case POW:
+                return operandValues == null && scalar > 0;
+            default:
+                return operandValues == null && scalar == 0;
+        }
+    }
+
+    double apply(double value, int index) {
+        double other = operandValues == null ? scalar : operandValues[index];
+        switch (operator) {
+            case ADD:
+                return value + other;
+            case SUBTRACT:
+                return value - other;
+            case MULTIPLY:
+                return value * other;
+            case DIVIDE:
+                return value / other;
+            default:
+                return Math.pow(value, other);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package Vectors;
+
+import java.util.*;
+
+/**
+ * Base class for weight vectors that keep their values somewhere other than the
+ * <code>double[]</code> inherited from <code>SparseFeatureVector</code>, such as
+ * off-heap memory or a reduced-precision array. Every operation that would touch the
+ * inherited array, including the in-place arithmetic that <code>SparseFeatureVector</code>
+ * hands to its dense kernels, is redirected through {@link #get(int)} and
+ * {@link #set(int, double)}; subclasses override whichever of them they can do faster.
+ */
+abstract class ExternalWeightVector extends WeightVector {
+
+    ExternalWeightVector(double bias) {
+        super(new double[0], bias);
+    }
+
+    @Override
+    public abstract int size();
+
+    @Override
+    public abstract double get(int index);
+
+    @Override
+    public abstract void set(int index, double val);
+
+    @Override
+    public double dot(FeatureVector other) {
+        checkVectorSize(other);
+        if (!(other instanceof SparseFeatureVector))
+            return other.dot(this);
+
+        double dotProduct = 0.0;
+        for (int i = 0; i < size(); i++)
+            dotProduct += get(i) * other.get(i);
+        return dotProduct;
+    }
+
+    @Override
+    public void scaledAdditionInPlace(double scalar, FeatureVector other) {
+        checkVectorSize(other);
+        if (scalar == 0)
+            return;
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            set(cursor.index(), get(cursor.index()) + scalar * cursor.value());
+    }
+
+    @Override
+    public double euclideanLength() {
+        double squaredLength = 0.0;
+        for (int i = 0; i < size(); i++)
+            squaredLength += get(i) * get(i);
+        return Math.sqrt(squaredLength);
+    }
+
+    @Override
+    public void additionInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) + other.get(i));
+    }
+
+    @Override
+    public void additionInPlace(double scalar) {
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) + scalar);
+    }
+
+    @Override
+    public void subtractInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) - other.get(i));
+    }
+
+    @Override
+    public void multiplyInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) * other.get(i));
+    }
+
+    @Override
+    public void multiplyInPlace(double scalar) {
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) * scalar);
+    }
+
+    @Override
+    public void divideInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) / other.get(i));
+    }
+
+    @Override
+    public void divideInPlace(double scalar) {
+        for (int i = 0; i < size(); i++)
+            set(i, get(i) / scalar);
+    }
+
+    @Override
+    public void powInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int i = 0; i < size(); i++)
+            set(i, Math.pow(get(i), other.get(i)));
+    }
+
+    @Override
+    public void powInPlace(double scalar) {
+        for (int i = 0; i < size(); i++)
+            set(i, Math.pow(get(i), scalar));
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0.0;
+        for (int i = 0; i < size(); i++)
+            sum += get(i);
+        return sum;
+    }
+
+    @Override
+    public void forEachNonZero(NonZeroConsumer consumer) {
+        for (int i = 0; i < size(); i++) {
+            double value = get(i);
+            if (value != 0)
+                consumer.accept(i, value);
+        }
+    }
+
+    @Override
+    public NonZeroCursor nonZeroCursor(NonZeroCursor cursor) {
+        int count = 0;
+        for (int i = 0; i < size(); i++) {
+            double value = get(i);
+            if (value == 0)
+                continue;
+            cursor.indexBuffer(count + 1)[count] = i;
+            cursor.valueBuffer(count + 1)[count] = value;
+            count++;
+        }
+        cursor.resetToBuffers(count);
+        return cursor;
+    }
+
+    /**
+     * Copies the values into a new array on the heap. Changes to the array are not
+     * reflected in the vector.
+     * @return a heap copy of the values
+     */
+    @Override
+    public double[] getVector() {
+        double[] vector = new double[size()];
+        for (int i = 0; i < vector.length; i++)
+            vector[i] = get(i);
+        return vector;
+    }
+
+    @Override
+    public void update(FeatureVector other) {
+        checkVectorSize(other);
+        zero();
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            set(cursor.index(), cursor.value());
+    }
+
+    @Override
+    public void zero() {
+        for (int i = 0; i < size(); i++)
+            set(i, 0.0);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Double))
+            return false;
+        double target = (Double) o;
+        for (int i = 0; i < size(); i++)
+            if (get(i) == target)
+                return true;
+        return false;
+    }
+
+    @Override
+    public Iterator<Double> iterator() {
+        return new Iterator<Double>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() { return currentIndex < size(); }
+
+            @Override
+            public Double next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return get(currentIndex++);
+            }
+        };
+    }
+}
@@ -1,11 +1,47 @@
 package Vectors;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
+/**
+ * A collection of equal-length feature vectors. The matrix either holds an array of
+ * separately allocated row vectors or, in compressed-row (CSR) mode, stores all rows
+ * in three contiguous primitive arrays: row pointers, column indices and values. In
+ * CSR mode, <code>get</code> hands out <code>PackedFeatureVector</code> views of the
+ * rows that read and write the shared arrays without copying. Operations that would
+ * add new non-zero elements convert the matrix back to row storage.
+ *
+ * In lazy mode, the bulk arithmetic methods only record the operation. The recorded
+ * chain is applied in a single pass over each row when the matrix is next read
+ * (through <code>get</code>, iteration or {@link #materialize()}), so that e.g.
+ * <code>subtract(mean); divide(std); pow(p)</code> reads and writes every row once
+ * instead of three times.
+ *
+ * With a parallelism above one (see {@link #setParallelism(int, int)}), bulk arithmetic
+ * is split into chunks of rows that run on a fork-join pool. Every row is still
+ * computed by exactly the same code as in sequential mode, so the results are
+ * identical. The pool's threads belong to the matrix and are released by
+ * {@link #close()}.
+ */
 // TODO: Extend serializable?
-public class FeatureMatrix extends AbstractCollection<FeatureVector> {
+public class FeatureMatrix extends AbstractCollection<FeatureVector> implements AutoCloseable {
     private FeatureVector[] matrix;
+    private int[] rowPointers;
+    private int[] columnIndices;
+    private double[] values;
     private final int[] shape;
+    private boolean lazy;
+    private final List<ElementwiseOperation> pending = new ArrayList<>();
+    private ForkJoinPool pool;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * The default number of rows below which a range of rows is not split further
+     * between threads.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256;
 
     public FeatureMatrix(Collection<FeatureVector> vectors) {
         matrix = new FeatureVector[vectors.size()];
@@ -20,69 +56,481 @@ public class FeatureMatrix extends AbstractCollection<FeatureVector> {
         shape = new int[] {matrix[0].size(), matrix.length};
     }
 
+    /**
+     * Initializes a matrix in compressed-row mode from its three arrays. The non-zeros
+     * of row <code>i</code> are found at positions <code>rowPointers[i]</code> up to
+     * <code>rowPointers[i + 1]</code> of <code>columnIndices</code> and <code>values</code>,
+     * sorted by column. The arrays are used as they are, without copying.
+     * @param nFeatures the length of each row
+     * @param rowPointers the start of each row, followed by the total number of non-zeros
+     * @param columnIndices the column of every non-zero element
+     * @param values the value of every non-zero element
+     */
+    public FeatureMatrix(int nFeatures, int[] rowPointers, int[] columnIndices, double[] values) {
+        if (rowPointers.length < 1 || rowPointers[0] != 0)
+            throw new IllegalArgumentException("Row pointers must start at 0.");
+        int nnz = rowPointers[rowPointers.length - 1];
+        if (columnIndices.length < nnz || values.length < nnz)
+            throw new IllegalArgumentException("Column and value arrays are shorter than the row pointers.");
+
+        for (int row = 0; row < rowPointers.length - 1; row++) {
+            if (rowPointers[row] > rowPointers[row + 1])
+                throw new IllegalArgumentException("Row pointers must be non-decreasing.");
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                if (columnIndices[k] < 0 || columnIndices[k] >= nFeatures)
+                    throw new VectorLengthException("Column index " + columnIndices[k] + " out of range.");
+                if (k > rowPointers[row] && columnIndices[k - 1] >= columnIndices[k])
+                    throw new IllegalArgumentException("Column indices must be sorted within each row.");
+            }
+        }
+
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+        shape = new int[] {nFeatures, rowPointers.length - 1};
+    }
+
+    /**
+     * @return whether the rows are stored in compressed-row mode
+     */
+    public boolean isCompressedRows() {
+        return rowPointers != null;
+    }
+
+    /**
+     * Converts the matrix to compressed-row mode. Vectors previously returned by
+     * <code>get</code> no longer belong to the matrix afterwards.
+     */
+    public void compressRows() {
+        if (isCompressedRows())
+            return;
+        CsrBuilder builder = new CsrBuilder(shape[0]);
+        for (FeatureVector vector : matrix)
+            builder.addRow(vector);
+        FeatureMatrix compressed = builder.build();
+        rowPointers = compressed.rowPointers;
+        columnIndices = compressed.columnIndices;
+        values = compressed.values;
+        matrix = null;
+    }
+
+    /**
+     * Converts a compressed-row matrix to separately allocated rows, so that the rows
+     * may gain new non-zero elements. Views handed out earlier keep the old arrays.
+     */
+    public void expandRows() {
+        if (!isCompressedRows())
+            return;
+        FeatureVector[] rows = new FeatureVector[size()];
+        for (int i = 0; i < rows.length; i++) {
+            int start = rowPointers[i], end = rowPointers[i + 1];
+            rows[i] = new PackedFeatureVector(shape[0],
+                    Arrays.copyOfRange(columnIndices, start, end),
+                    Arrays.copyOfRange(values, start, end));
+        }
+        matrix = rows;
+        rowPointers = null;
+        columnIndices = null;
+        values = null;
+    }
+
+    /**
+     * Runs bulk arithmetic on a fork-join pool of the given size. Ranges of rows are
+     * halved until they hold at most <code>chunkSize</code> rows; matrices with no more
+     * than <code>chunkSize</code> rows are processed on the calling thread.
+     * @param parallelism the number of threads, or 1 for sequential execution
+     * @param chunkSize the largest number of rows processed as one task
+     */
+    public void setParallelism(int parallelism, int chunkSize) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        close();
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.chunkSize = chunkSize;
+    }
+
+    public void setParallelism(int parallelism) {
+        setParallelism(parallelism, chunkSize);
+    }
+
+    public int getParallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Shuts down the fork-join pool of this matrix, if it has one. The matrix remains
+     * usable and runs bulk arithmetic on the calling thread from then on.
+     */
+    @Override
+    public void close() {
+        if (pool != null)
+            pool.shutdown();
+        pool = null;
+    }
+
+    private void forEachRow(Consumer<FeatureVector> action) {
+        forEachRowRange((from, to) -> {
+            for (int i = from; i < to; i++)
+                action.accept(matrix[i]);
+        });
+    }
+
+    private void forEachRowRange(RowRangeAction action) {
+        if (pool == null || size() <= chunkSize) {
+            action.apply(0, size());
+            return;
+        }
+        pool.invoke(new RowRangeTask(action, 0, size(), chunkSize));
+    }
+
+    @FunctionalInterface
+    private interface RowRangeAction {
+        void apply(int from, int to);
+    }
+
+    /**
+     * Splits a range of rows in halves until it is no longer than the chunk size.
+     */
+    private static class RowRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowRangeAction action;
+        private final int from, to, chunkSize;
+
+        RowRangeTask(RowRangeAction action, int from, int to, int chunkSize) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                action.apply(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowRangeTask(action, from, middle, chunkSize),
+                    new RowRangeTask(action, middle, to, chunkSize));
+        }
+    }
+
+    /**
+     * Switches lazy mode on or off. Switching it off applies any recorded operations.
+     * @param lazy whether bulk arithmetic should be deferred until the matrix is read
+     */
+    public void setLazy(boolean lazy) {
+        if (!lazy)
+            materialize();
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Records an operation instead of performing it if the matrix is lazy.
+     * @return whether the operation was deferred
+     */
+    private boolean defer(ElementwiseOperation.Operator operator, double scalar) {
+        if (!lazy)
+            return false;
+        if (operator == ElementwiseOperation.Operator.DIVIDE && scalar == 0)
+            throw new IllegalArgumentException("Argument 'scalar' is 0");
+        if ((operator == ElementwiseOperation.Operator.ADD || operator == ElementwiseOperation.Operator.SUBTRACT)
+                && scalar == 0)
+            return true;
+        pending.add(ElementwiseOperation.of(operator, scalar));
+        return true;
+    }
+
+    private boolean defer(ElementwiseOperation.Operator operator, FeatureVector other) {
+        if (!lazy)
+            return false;
+        checkRowSize(other);
+        pending.add(ElementwiseOperation.of(operator, other));
+        return true;
+    }
+
+    /**
+     * Applies every operation recorded in lazy mode, fused into a single pass over each
+     * row. If every operation maps zero to zero, only the non-zero elements of sparse
+     * rows are visited and a compressed-row matrix stays compressed.
+     */
+    public void materialize() {
+        if (pending.isEmpty())
+            return;
+        ElementwiseOperation[] chain = pending.toArray(new ElementwiseOperation[0]);
+        pending.clear();
+
+        boolean preservesZero = true;
+        for (ElementwiseOperation operation : chain)
+            preservesZero &= operation.preservesZero();
+
+        if (isCompressedRows()) {
+            if (preservesZero) {
+                forEachRowRange((from, to) -> {
+                    for (int k = rowPointers[from]; k < rowPointers[to]; k++)
+                        values[k] = apply(chain, values[k], columnIndices[k]);
+                });
+                dropStoredZeros();
+                return;
+            }
+            expandRows();
+        }
+        boolean zeroPreserving = preservesZero;
+        forEachRow(vector -> apply(chain, vector, zeroPreserving));
+    }
+
+    private static double apply(ElementwiseOperation[] chain, double value, int index) {
+        for (ElementwiseOperation operation : chain)
+            value = operation.apply(value, index);
+        return value;
+    }
+
+    private static void apply(ElementwiseOperation[] chain, FeatureVector vector, boolean preservesZero) {
+        if (SparseFeatureVector.isHeapBacked(vector)) {
+            double[] dense = vector.getVector();
+            for (int i = 0; i < dense.length; i++)
+                dense[i] = apply(chain, dense[i], i);
+            return;
+        }
+
+        if (preservesZero) {
+            // copy the non-zeros out first, since setting a value to zero may
+            // shift the storage the cursor is reading from
+            NonZeroCursor cursor = vector.nonZeroCursor();
+            int count = 0;
+            while (cursor.next())
+                count++;
+            int[] indices = new int[count];
+            double[] nonZeros = new double[count];
+            cursor.rewind();
+            for (int k = 0; cursor.next(); k++) {
+                indices[k] = cursor.index();
+                nonZeros[k] = cursor.value();
+            }
+            for (int k = 0; k < count; k++)
+                vector.set(indices[k], apply(chain, nonZeros[k], indices[k]));
+            return;
+        }
+
+        double[] dense = vector.getVector();
+        for (int i = 0; i < dense.length; i++)
+            dense[i] = apply(chain, dense[i], i);
+        vector.update(new SparseFeatureVector(dense));
+    }
+
+    /**
+     * Removes the zeros that arithmetic has left among the stored elements of a
+     * compressed-row matrix. If there are any, the matrix moves to new arrays, and views
+     * handed out earlier keep the old ones.
+     */
+    private void dropStoredZeros() {
+        int nnz = rowPointers[size()];
+        int zeros = 0;
+        for (int k = 0; k < nnz; k++)
+            if (values[k] == 0)
+                zeros++;
+        if (zeros == 0)
+            return;
+
+        int[] newRowPointers = new int[rowPointers.length];
+        int[] newColumnIndices = new int[nnz - zeros];
+        double[] newValues = new double[nnz - zeros];
+        int count = 0;
+        for (int row = 0; row < size(); row++) {
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                if (values[k] == 0)
+                    continue;
+                newColumnIndices[count] = columnIndices[k];
+                newValues[count] = values[k];
+                count++;
+            }
+            newRowPointers[row + 1] = count;
+        }
+        rowPointers = newRowPointers;
+        columnIndices = newColumnIndices;
+        values = newValues;
+    }
+
     // TODO: Add multiple axes
     public void addition(double scalar) {
-        for (FeatureVector vector : matrix) {
-            vector.additionInPlace(scalar);
-        }
+        if (defer(ElementwiseOperation.Operator.ADD, scalar))
+            return;
+        if (scalar == 0)
+            return;
+        expandRows();
+        forEachRow(vector -> vector.additionInPlace(scalar));
     }
 
     public void addition(FeatureVector other) {
-        for (FeatureVector vector : matrix) {
-            vector.additionInPlace(other);
-        }
+        if (defer(ElementwiseOperation.Operator.ADD, other))
+            return;
+        expandRows();
+        forEachRow(vector -> vector.additionInPlace(other));
     }
 
     // TODO: Add multiple axes
     public void subtract(double scalar) {
-        for (FeatureVector vector : matrix) {
-            vector.subtractInPlace(scalar);
-        }
+        if (defer(ElementwiseOperation.Operator.SUBTRACT, scalar))
+            return;
+        if (scalar == 0)
+            return;
+        expandRows();
+        forEachRow(vector -> vector.subtractInPlace(scalar));
     }
 
     public void subtract(FeatureVector other) {
-        for (FeatureVector vector : matrix) {
-            vector.subtractInPlace(other);
-        }
+        if (defer(ElementwiseOperation.Operator.SUBTRACT, other))
+            return;
+        expandRows();
+        forEachRow(vector -> vector.subtractInPlace(other));
     }
 
     // TODO: Add multiple axes
     public void multiply(double scalar) {
-        for (FeatureVector vector : matrix) {
-            vector.multiplyInPlace(scalar);
+        if (defer(ElementwiseOperation.Operator.MULTIPLY, scalar))
+            return;
+        if (isCompressedRows()) {
+            forEachRowRange((from, to) ->
+                    SparseFeatureVector.KERNELS.multiply(values, scalar, values, rowPointers[from], rowPointers[to]));
+            dropStoredZeros();
+            return;
         }
+        forEachRow(vector -> vector.multiplyInPlace(scalar));
     }
 
     public void multiply(FeatureVector other) {
-        for (FeatureVector vector : matrix) {
-            vector.multiplyInPlace(other);
+        if (defer(ElementwiseOperation.Operator.MULTIPLY, other))
+            return;
+        if (isCompressedRows()) {
+            checkRowSize(other);
+            double[] operand = other.getVector();
+            forEachRowRange((from, to) -> {
+                for (int k = rowPointers[from]; k < rowPointers[to]; k++)
+                    values[k] *= operand[columnIndices[k]];
+            });
+            dropStoredZeros();
+            return;
         }
+        forEachRow(vector -> vector.multiplyInPlace(other));
     }
 
     // TODO: Add multiple axes
     public void divide(double scalar) {
-        for (FeatureVector vector : matrix) {
-            vector.divideInPlace(scalar);
+        if (defer(ElementwiseOperation.Operator.DIVIDE, scalar))
+            return;
+        if (isCompressedRows()) {
+            if (scalar == 0)
+                throw new IllegalArgumentException("Argument 'scalar' is 0");
+            forEachRowRange((from, to) ->
+                    SparseFeatureVector.KERNELS.divide(values, scalar, values, rowPointers[from], rowPointers[to]));
+            dropStoredZeros();
+            return;
         }
+        forEachRow(vector -> vector.divideInPlace(scalar));
     }
 
     public void divide(FeatureVector other) {
-        for (FeatureVector vector : matrix) {
-            vector.divideInPlace(other);
+        if (defer(ElementwiseOperation.Operator.DIVIDE, other))
+            return;
+        if (isCompressedRows()) {
+            checkRowSize(other);
+            double[] operand = other.getVector();
+            forEachRowRange((from, to) -> {
+                for (int k = rowPointers[from]; k < rowPointers[to]; k++)
+                    values[k] /= operand[columnIndices[k]];
+            });
+            dropStoredZeros();
+            return;
         }
+        forEachRow(vector -> vector.divideInPlace(other));
     }
 
     // TODO: Add multiple axes
     public void pow(double scalar) {
-        for (FeatureVector vector : matrix) {
-            vector.powInPlace(scalar);
+        if (defer(ElementwiseOperation.Operator.POW, scalar))
+            return;
+        if (isCompressedRows() && scalar > 0) {
+            forEachRowRange((from, to) ->
+                    SparseFeatureVector.KERNELS.pow(values, scalar, values, rowPointers[from], rowPointers[to]));
+            dropStoredZeros();
+            return;
         }
+        expandRows();
+        forEachRow(vector -> vector.powInPlace(scalar));
     }
 
     public void pow(FeatureVector other) {
-        for (FeatureVector vector : matrix) {
-            vector.powInPlace(other);
+        if (defer(ElementwiseOperation.Operator.POW, other))
+            return;
+        expandRows();
+        forEachRow(vector -> vector.powInPlace(other));
+    }
+
+    /**
+     * Calculates the dot product of every row with a vector, i.e. the matrix-vector
+     * product, in one pass over the non-zero elements of the matrix.
+     * @param vector a vector as long as each row
+     * @return an array holding the dot product of each row with <code>vector</code>
+     */
+    public double[] dot(FeatureVector vector) {
+        double[] out = new double[size()];
+        dot(vector, out);
+        return out;
+    }
+
+    /**
+     * Writes the dot product of every row with a vector into an existing array.
+     * @param vector a vector as long as each row
+     * @param out an array at least as long as the number of rows
+     */
+    public void dot(FeatureVector vector, double[] out) {
+        checkRowSize(vector);
+        if (out.length < size())
+            throw new IllegalArgumentException("Output array is shorter than the number of rows.");
+        materialize();
+
+        if (!isCompressedRows()) {
+            forEachRowRange((from, to) -> {
+                // the vector drives the traversal, so that weights held outside the heap
+                // are read in place rather than copied for every dense row
+                for (int i = from; i < to; i++)
+                    out[i] = vector.dot(matrix[i]);
+            });
+            return;
         }
+
+        if (SparseFeatureVector.isHeapBacked(vector)) {
+            double[] dense = vector.getVector();
+            forEachRowRange((from, to) -> {
+                for (int i = from; i < to; i++) {
+                    double dotProduct = 0.0;
+                    for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++)
+                        dotProduct += values[k] * dense[columnIndices[k]];
+                    out[i] = dotProduct;
+                }
+            });
+            return;
+        }
+
+        forEachRowRange((from, to) -> {
+            for (int i = from; i < to; i++) {
+                double dotProduct = 0.0;
+                for (int k = rowPointers[i]; k < rowPointers[i + 1]; k++)
+                    dotProduct += values[k] * vector.get(columnIndices[k]);
+                out[i] = dotProduct;
+            }
+        });
     }
 
     private void ensureLength(FeatureVector[] matrix) {
@@ -93,11 +541,33 @@ public class FeatureMatrix extends AbstractCollection<FeatureVector> {
         }
     }
 
-    // TODO
+    private void checkRowSize(FeatureVector other) {
+        if (other.size() != shape[0])
+            throw new IllegalArgumentException("Vectors are not of equal lengths");
+    }
+
     @Override
     public Iterator<FeatureVector> iterator() {
-        List<FeatureVector> array = Arrays.asList(matrix);
-        return array.iterator();
+        materialize();
+        if (!isCompressedRows()) {
+            List<FeatureVector> array = Arrays.asList(matrix);
+            return array.iterator();
+        }
+        return new Iterator<FeatureVector>() {
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return row < size();
+            }
+
+            @Override
+            public FeatureVector next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return get(row++);
+            }
+        };
     }
 
     @Override
@@ -105,9 +575,40 @@ public class FeatureMatrix extends AbstractCollection<FeatureVector> {
         return shape[1];
     }
 
+    /**
+     * Counts the non-zero elements across all rows after applying any pending operations.
+     * The arithmetic methods never leave zeros stored, so in compressed-row mode this is
+     * the number of stored elements; only a zero written through a row view stays stored
+     * until the next multiplication or division of the matrix.
+     * @return the number of non-zero elements across all rows
+     */
+    public long nonZeroCount() {
+        materialize();
+        if (isCompressedRows())
+            return rowPointers[size()];
+        long count = 0;
+        NonZeroCursor cursor = new NonZeroCursor();
+        for (FeatureVector row : matrix) {
+            row.nonZeroCursor(cursor);
+            while (cursor.next())
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a row of the matrix. In compressed-row mode the row is a view of the
+     * matrix's arrays: writes to its stored elements show in the matrix, while a write
+     * that changes its non-zero structure detaches it (see <code>PackedFeatureVector</code>).
+     * @param i the index of the row
+     * @return the row
+     */
     public FeatureVector get(int i) {
-        if (i < 0 || i > size())
+        if (i < 0 || i >= size())
             throw new IndexOutOfBoundsException();
+        materialize();
+        if (isCompressedRows())
+            return PackedFeatureVector.view(shape[0], columnIndices, values, rowPointers[i], rowPointers[i + 1]);
         return matrix[i];
     }
 
@@ -117,6 +618,9 @@ public class FeatureMatrix extends AbstractCollection<FeatureVector> {
 
     @Override
     public String toString() {
+        materialize();
+        if (isCompressedRows())
+            return super.toString();
         return Arrays.toString(matrix);
     }
 
@@ -140,7 +644,7 @@ public class FeatureMatrix extends AbstractCollection<FeatureVector> {
 
     /**
      * Initializes a <code>FeatureMatrix</code> object with random values of the shape
-     * {nFeatures, length}. Uses the <code>CompressedFeatureVector</code> implementation.
+     * {nFeatures, length}, stored in compressed-row mode.
      * @param length the number of vectors in the matrix
      * @param nFeatures the length of each vector
      * @param sparsity the level of sparsity of the array: higher values mean fewer non-
@@ -150,12 +654,92 @@ public class FeatureMatrix extends AbstractCollection<FeatureVector> {
     public static FeatureMatrix randomInitialize(int nFeatures, int length, double sparsity) {
         if (length < 0)
             throw new IllegalArgumentException("Length must be a positive integer.");
+        if (sparsity < 0 || sparsity > 1)
+            throw new IllegalArgumentException("sparsity must be between 0 and 1");
 
-        CompressedFeatureVector[] matrix = new CompressedFeatureVector[length];
-        for (int i = 0; i < length; i++) {
-            matrix[i] = CompressedFeatureVector.randomInitialize(nFeatures, sparsity);
+        int rowNonZeros = (int) ((1 - sparsity) * nFeatures);
+        long totalNonZeros = (long) rowNonZeros * length;
+        if (totalNonZeros > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("A compressed-row matrix holds at most " + Integer.MAX_VALUE
+                    + " non-zero elements, but " + totalNonZeros + " were requested.");
+        int[] rowPointers = new int[length + 1];
+        int[] columnIndices = new int[(int) totalNonZeros];
+        double[] values = new double[(int) totalNonZeros];
+
+        int offset = 0;
+        for (int i = 0; i < length; i++, offset += rowNonZeros) {
+            int[] rowIndices = PackedFeatureVector.randomIndices(nFeatures, rowNonZeros);
+            System.arraycopy(rowIndices, 0, columnIndices, offset, rowNonZeros);
+            for (int k = offset; k < offset + rowNonZeros; k++)
+                values[k] = Math.random();
+            rowPointers[i + 1] = offset + rowNonZeros;
+        }
+        return new FeatureMatrix(nFeatures, rowPointers, columnIndices, values);
+    }
+
+    /**
+     * Accumulates rows one at a time directly into the three arrays of a compressed-row
+     * matrix, so that no per-row vector needs to be kept around.
+     */
+    public static class CsrBuilder {
+        private static final int DEFAULT_CAPACITY = 64;
+
+        private final int nFeatures;
+        private int[] rowPointers;
+        private int[] columnIndices;
+        private double[] values;
+        private int nRows;
+        private final NonZeroCursor cursor = new NonZeroCursor();
+
+        public CsrBuilder(int nFeatures) {
+            this.nFeatures = nFeatures;
+            rowPointers = new int[DEFAULT_CAPACITY + 1];
+            columnIndices = new int[DEFAULT_CAPACITY];
+            values = new double[DEFAULT_CAPACITY];
+        }
+
+        /**
+         * Appends the non-zero elements of a vector as the next row of the matrix.
+         * @param vector a vector of length <code>nFeatures</code>
+         */
+        public void addRow(FeatureVector vector) {
+            if (vector.size() != nFeatures)
+                throw new VectorLengthException("Vector lengths are not uniform.");
+            if (nRows + 1 == rowPointers.length)
+                rowPointers = Arrays.copyOf(rowPointers, rowPointers.length * 2);
+
+            int nnz = rowPointers[nRows];
+            vector.nonZeroCursor(cursor);
+            while (cursor.next()) {
+                if (nnz == Integer.MAX_VALUE)
+                    throw new IllegalStateException("A compressed-row matrix holds at most "
+                            + Integer.MAX_VALUE + " non-zero elements.");
+                ensureCapacity(nnz + 1);
+                columnIndices[nnz] = cursor.index();
+                values[nnz] = cursor.value();
+                nnz++;
+            }
+            rowPointers[++nRows] = nnz;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= values.length)
+                return;
+            int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(capacity, 2L * values.length));
+            columnIndices = Arrays.copyOf(columnIndices, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        /**
+         * @return a compressed-row matrix of the rows added so far
+         */
+        public FeatureMatrix build() {
+            int nnz = rowPointers[nRows];
+            return new FeatureMatrix(nFeatures,
+                    Arrays.copyOf(rowPointers, nRows + 1),
+                    Arrays.copyOf(columnIndices, nnz),
+                    Arrays.copyOf(values, nnz));
         }
-        return new FeatureMatrix(matrix);
     }
 }
 
@@ -18,17 +18,20 @@ abstract public class FeatureVector extends AbstractCollection<Double> {
      * @return the cosine similarity of this and another vector
      */
     public double cosineSimilarity(FeatureVector other) {
-        double dotProduct = 0.0, euclideanLengthA = 0.0, euclideanLengthB = 0.0;
-        for (int i = 0; i < size(); i++) {
-            double thisValue = get(i);
-            double otherValue = other.get(i);
-
-            dotProduct += thisValue * otherValue;
-            euclideanLengthA += Math.pow(thisValue, 2);
-            euclideanLengthB += Math.pow(otherValue, 2);
-        }
+        checkVectorSize(other);
+        return dot(other) / (euclideanLength() * other.euclideanLength());
+    }
 
-        return dotProduct / (Math.sqrt(euclideanLengthA) * Math.sqrt(euclideanLengthB));
+    /**
+     * Calculates the euclidean length of the vector.
+     * @return the square root of the sum of the squared values of the vector
+     */
+    public double euclideanLength() {
+        double squaredLength = 0.0;
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            squaredLength += cursor.value() * cursor.value();
+        return Math.sqrt(squaredLength);
     }
 
     /**
@@ -39,8 +42,9 @@ abstract public class FeatureVector extends AbstractCollection<Double> {
     public double dot(FeatureVector other) {
         checkVectorSize(other);
         double dotProduct = 0.0;
-        for (int i = 0; i < this.size(); i++)
-            dotProduct += get(i) * other.get(i);
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            dotProduct += cursor.value() * other.get(cursor.index());
         return dotProduct;
     }
 
@@ -170,9 +174,10 @@ abstract public class FeatureVector extends AbstractCollection<Double> {
      * @return the sum of all the values in the vector.
      */
     public double sum() {
-        int sum = 0;
-        for (double val : this)
-            sum += val;
+        double sum = 0.0;
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            sum += cursor.value();
         return sum;
     }
 
@@ -196,25 +201,64 @@ abstract public class FeatureVector extends AbstractCollection<Double> {
     }
 
     public List<Double> nonZeroValues() {
-        LinkedList<Double> retVal = new LinkedList<>();
-        for (double val : this)
-            if (val != 0.0)
-                retVal.add(val);
+        ArrayList<Double> retVal = new ArrayList<>();
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            retVal.add(cursor.value());
         return retVal;
     }
 
     /**
      * Returns all indices at which the value is not zero
-     * @return all indices at which the value is not zero
+     * @return all indices at which the value is not zero, in ascending order
      */
     public List<Integer> nonZeroIndices() {
-        LinkedList<Integer> retVal = new LinkedList<>();
+        ArrayList<Integer> retVal = new ArrayList<>();
+        NonZeroCursor cursor = nonZeroCursor();
+        while (cursor.next())
+            retVal.add(cursor.index());
+        return retVal;
+    }
+
+    /**
+     * Passes every non-zero element of the vector to <code>consumer</code>, in ascending
+     * order of index, without boxing.
+     * @param consumer receives the index and value of each non-zero element
+     */
+    public void forEachNonZero(NonZeroConsumer consumer) {
         for (int i = 0; i < size(); i++) {
-            if (get(i) != 0)
-                retVal.add(i);
+            double value = get(i);
+            if (value != 0)
+                consumer.accept(i, value);
         }
-        Collections.sort(retVal);
-        return retVal;
+    }
+
+    /**
+     * Returns a new cursor over the non-zero elements of the vector.
+     * @return a cursor positioned before the first non-zero element
+     */
+    public NonZeroCursor nonZeroCursor() {
+        return nonZeroCursor(new NonZeroCursor());
+    }
+
+    /**
+     * Binds an existing cursor to the non-zero elements of the vector, so that a single
+     * cursor can traverse many vectors without allocating.
+     * @param cursor the cursor to reuse
+     * @return <code>cursor</code>, positioned before the first non-zero element
+     */
+    public NonZeroCursor nonZeroCursor(NonZeroCursor cursor) {
+        int count = 0;
+        for (int i = 0; i < size(); i++) {
+            double value = get(i);
+            if (value == 0)
+                continue;
+            cursor.indexBuffer(count + 1)[count] = i;
+            cursor.valueBuffer(count + 1)[count] = value;
+            count++;
+        }
+        cursor.resetToBuffers(count);
+        return cursor;
     }
 
     /**
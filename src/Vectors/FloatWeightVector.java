@@ -0,0 +1,77 @@
+package Vectors;
+
+/**
+ * A <code>WeightVector</code> that stores its values as <code>float</code>s, halving the
+ * memory of a trained model. Meant for inference: values written through
+ * {@link #set(int, double)} are rounded to single precision. Dot products are still
+ * accumulated in double precision.
+ */
+public class FloatWeightVector extends ExternalWeightVector {
+
+    private final float[] vector;
+
+    public FloatWeightVector(int length) {
+        this(new float[length], 0.0);
+    }
+
+    public FloatWeightVector(float[] vector, double bias) {
+        super(bias);
+        this.vector = vector;
+    }
+
+    /**
+     * Rounds the values of a trained weight vector to single precision.
+     * @param weights the weights to convert
+     * @return a single-precision copy of <code>weights</code>, with the same bias
+     */
+    public static FloatWeightVector fromWeights(WeightVector weights) {
+        float[] values = new float[weights.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = (float) weights.get(i);
+        return new FloatWeightVector(values, weights.getBias());
+    }
+
+    @Override
+    public int size() {
+        return vector.length;
+    }
+
+    @Override
+    public double get(int index) {
+        return vector[index];
+    }
+
+    @Override
+    public void set(int index, double val) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException();
+        vector[index] = (float) val;
+    }
+
+    @Override
+    public double dot(FeatureVector other) {
+        checkVectorSize(other);
+        double dotProduct = 0.0;
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            dotProduct += vector[cursor.index()] * cursor.value();
+        return dotProduct;
+    }
+
+    @Override
+    public void scaledAdditionInPlace(double scalar, FeatureVector other) {
+        checkVectorSize(other);
+        if (scalar == 0)
+            return;
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            vector[cursor.index()] += (float) (scalar * cursor.value());
+    }
+
+    /**
+     * @return the internal float array of the vector
+     */
+    public float[] getFloatVector() {
+        return vector;
+    }
+}
@@ -0,0 +1,11 @@
+package Vectors;
+
+/**
+ * Receives the non-zero elements of a <code>FeatureVector</code> as primitive
+ * index/value pairs. See {@link FeatureVector#forEachNonZero(NonZeroConsumer)}.
+ */
+@FunctionalInterface
+public interface NonZeroConsumer {
+
+    void accept(int index, double value);
+}
@@ -0,0 +1,126 @@
+package Vectors;
+
+import java.util.Arrays;
+
+/**
+ * A reusable cursor over the non-zero elements of a <code>FeatureVector</code>, in
+ * ascending order of index. Values are read as primitives, so a traversal neither
+ * boxes nor allocates. A single cursor can be bound to any number of vectors in turn
+ * through {@link FeatureVector#nonZeroCursor(NonZeroCursor)}:
+ * <pre>
+ *     NonZeroCursor cursor = new NonZeroCursor();
+ *     for (FeatureVector vector : matrix) {
+ *         vector.nonZeroCursor(cursor);
+ *         while (cursor.next())
+ *             total += cursor.value();
+ *     }
+ * </pre>
+ */
+public final class NonZeroCursor {
+
+    private static final int[] EMPTY_INDICES = new int[0];
+    private static final double[] EMPTY_VALUES = new double[0];
+
+    private int[] indices = EMPTY_INDICES;
+    private double[] values = EMPTY_VALUES;
+    private int start, end, position;
+    private boolean dense;
+    private int index;
+    private double value;
+
+    // buffers owned by the cursor for vectors that cannot lend out their storage
+    private int[] indexBuffer = EMPTY_INDICES;
+    private double[] valueBuffer = EMPTY_VALUES;
+
+    /**
+     * Binds the cursor to entries <code>[start, end)</code> of parallel index and value
+     * arrays sorted by index.
+     */
+    void reset(int[] indices, double[] values, int start, int end) {
+        this.indices = indices;
+        this.values = values;
+        this.start = start;
+        this.end = end;
+        this.dense = false;
+        rewind();
+    }
+
+    /**
+     * Binds the cursor to a dense array, whose zeros are skipped.
+     */
+    void reset(double[] vector) {
+        this.indices = EMPTY_INDICES;
+        this.values = vector;
+        this.start = 0;
+        this.end = vector.length;
+        this.dense = true;
+        rewind();
+    }
+
+    /**
+     * @return an index buffer owned by the cursor with room for at least
+     * <code>capacity</code> entries
+     */
+    int[] indexBuffer(int capacity) {
+        if (indexBuffer.length < capacity)
+            indexBuffer = Arrays.copyOf(indexBuffer, Math.max(capacity, indexBuffer.length * 2));
+        return indexBuffer;
+    }
+
+    /**
+     * @return a value buffer owned by the cursor with room for at least
+     * <code>capacity</code> entries
+     */
+    double[] valueBuffer(int capacity) {
+        if (valueBuffer.length < capacity)
+            valueBuffer = Arrays.copyOf(valueBuffer, Math.max(capacity, valueBuffer.length * 2));
+        return valueBuffer;
+    }
+
+    /**
+     * Binds the cursor to the first <code>count</code> entries of its own buffers.
+     */
+    void resetToBuffers(int count) {
+        reset(indexBuffer, valueBuffer, 0, count);
+    }
+
+    /**
+     * Moves the cursor back to the first non-zero element.
+     */
+    public void rewind() {
+        position = start;
+        index = -1;
+        value = 0.0;
+    }
+
+    /**
+     * Advances the cursor to the next non-zero element.
+     * @return whether there was another non-zero element
+     */
+    public boolean next() {
+        while (position < end) {
+            int current = position++;
+            double currentValue = values[current];
+            if (currentValue != 0) {
+                index = dense ? current : indices[current];
+                value = currentValue;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the index of the current element
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * @return the value of the current element
+     */
+    public double value() {
+        return value;
+    }
+}
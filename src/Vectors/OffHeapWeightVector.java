@@ -0,0 +1,224 @@
+package Vectors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A <code>WeightVector</code> whose values live outside the Java heap, either in direct
+ * buffers or in a memory-mapped file. A single <code>ByteBuffer</code> cannot address
+ * more than 2 GB, so the values are split across segments of
+ * {@link #SEGMENT_SIZE} doubles each, and the vector (and its backing file) may be as
+ * large as <code>Integer.MAX_VALUE</code> doubles. Values are stored little-endian.
+ */
+public class OffHeapWeightVector extends ExternalWeightVector {
+
+    /**
+     * The number of bits of an index that address a value within a segment.
+     */
+    static final int SEGMENT_SHIFT = 27;
+    /**
+     * The number of doubles per segment: 2^27, i.e. one gigabyte.
+     */
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final DoubleBuffer[] segments;
+    private final ByteBuffer[] buffers;
+    private final int length;
+
+    /**
+     * Allocates a vector of zeros of a given length in direct memory.
+     * @param length the length of the vector
+     */
+    public OffHeapWeightVector(int length) {
+        this(length, 0.0);
+    }
+
+    /**
+     * Allocates a vector of zeros of a given length in direct memory.
+     * @param length the length of the vector
+     * @param bias the bias of the vector
+     */
+    public OffHeapWeightVector(int length, double bias) {
+        this(allocate(length), length, bias);
+    }
+
+    private OffHeapWeightVector(ByteBuffer[] buffers, int length, double bias) {
+        super(bias);
+        this.length = length;
+        this.buffers = buffers;
+        this.segments = new DoubleBuffer[buffers.length];
+        for (int s = 0; s < buffers.length; s++)
+            segments[s] = buffers[s].order(BYTE_ORDER).asDoubleBuffer();
+    }
+
+    private static ByteBuffer[] allocate(int length) {
+        if (length < 0)
+            throw new IllegalArgumentException("Length must be a positive integer.");
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount(length)];
+        for (int s = 0; s < buffers.length; s++)
+            buffers[s] = ByteBuffer.allocateDirect(segmentLength(length, s) * Double.BYTES);
+        return buffers;
+    }
+
+    private static int segmentCount(int length) {
+        return (int) (((long) length + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+    }
+
+    private static int segmentLength(int length, int segment) {
+        return (int) Math.min(SEGMENT_SIZE, (long) length - ((long) segment << SEGMENT_SHIFT));
+    }
+
+    /**
+     * Maps <code>length</code> doubles of an open file, starting at <code>position</code>,
+     * as a weight vector. The file must already be large enough when mapped read-only.
+     * @param channel an open file channel
+     * @param position the byte offset of the first value in the file
+     * @param length the length of the vector
+     * @param bias the bias of the vector
+     * @param mode <code>READ_ONLY</code> or <code>READ_WRITE</code>
+     * @return a vector backed by the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public static OffHeapWeightVector map(FileChannel channel, long position, int length,
+                                          double bias, FileChannel.MapMode mode) throws IOException {
+        if (length < 0)
+            throw new IllegalArgumentException("Length must be a positive integer.");
+        ByteBuffer[] buffers = new ByteBuffer[segmentCount(length)];
+        long offset = position;
+        for (int s = 0; s < buffers.length; s++) {
+            long size = (long) segmentLength(length, s) * Double.BYTES;
+            buffers[s] = channel.map(mode, offset, size);
+            offset += size;
+        }
+        return new OffHeapWeightVector(buffers, length, bias);
+    }
+
+    /**
+     * Maps a file holding nothing but the values of a weight vector, read-only.
+     * @param path the file to map
+     * @param bias the bias of the vector
+     * @return a vector backed by the file
+     * @throws IOException if the file cannot be read or mapped
+     */
+    public static OffHeapWeightVector map(Path path, double bias) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long values = channel.size() / Double.BYTES;
+            if (values > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("File holds more values than a vector can address.");
+            return map(channel, 0, (int) values, bias, FileChannel.MapMode.READ_ONLY);
+        }
+    }
+
+    /**
+     * Creates (or truncates) a file of zeros and maps it read-write as a weight vector,
+     * so that the weights persist once the vector is {@link #force() forced}.
+     * @param path the file to create
+     * @param length the length of the vector
+     * @return a vector backed by the file
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static OffHeapWeightVector create(Path path, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return map(channel, 0, length, 0.0, FileChannel.MapMode.READ_WRITE);
+        }
+    }
+
+    /**
+     * Copies a weight vector into direct memory.
+     * @param weights the weights to copy
+     * @return an off-heap copy of <code>weights</code>
+     */
+    public static OffHeapWeightVector copyOf(WeightVector weights) {
+        OffHeapWeightVector copy = new OffHeapWeightVector(weights.size(), weights.getBias());
+        copy.update(weights);
+        return copy;
+    }
+
+    /**
+     * Writes changes to a memory-mapped vector back to its file. Has no effect on
+     * vectors allocated in direct memory.
+     */
+    public void force() {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer instanceof MappedByteBuffer)
+                ((MappedByteBuffer) buffer).force();
+        }
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public double get(int index) {
+        return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+    }
+
+    @Override
+    public void set(int index, double val) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException();
+        segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, val);
+    }
+
+    @Override
+    public void scaledAdditionInPlace(double scalar, FeatureVector other) {
+        checkVectorSize(other);
+        if (scalar == 0)
+            return;
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next()) {
+            int index = cursor.index();
+            DoubleBuffer segment = segments[index >>> SEGMENT_SHIFT];
+            int offset = index & SEGMENT_MASK;
+            segment.put(offset, segment.get(offset) + scalar * cursor.value());
+        }
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0.0;
+        for (DoubleBuffer segment : segments)
+            for (int i = 0; i < segment.limit(); i++)
+                sum += segment.get(i);
+        return sum;
+    }
+
+    @Override
+    public void forEachNonZero(NonZeroConsumer consumer) {
+        for (int s = 0; s < segments.length; s++) {
+            DoubleBuffer segment = segments[s];
+            int base = s << SEGMENT_SHIFT;
+            for (int i = 0; i < segment.limit(); i++) {
+                double value = segment.get(i);
+                if (value != 0)
+                    consumer.accept(base + i, value);
+            }
+        }
+    }
+
+    @Override
+    public double[] getVector() {
+        double[] vector = new double[length];
+        for (int s = 0; s < segments.length; s++)
+            segments[s].get(0, vector, s << SEGMENT_SHIFT, segments[s].limit());
+        return vector;
+    }
+
+    @Override
+    public void zero() {
+        for (DoubleBuffer segment : segments)
+            for (int i = 0; i < segment.limit(); i++)
+                segment.put(i, 0.0);
+    }
+}
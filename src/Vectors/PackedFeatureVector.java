@@ -0,0 +1,721 @@
+package Vectors;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A compressed implementation of the <code>FeatureVector</code> interface backed by
+ * two parallel primitive arrays: the indices of the non-zero elements, kept in ascending
+ * order, and their corresponding values. Unlike <code>CompressedFeatureVector</code>,
+ * no boxing or hash table nodes are involved, so each non-zero costs twelve bytes and
+ * lookups are a binary search over a contiguous array.
+ *
+ * A vector may also be a view of a slice of arrays it does not own, as handed out by a
+ * <code>FeatureMatrix</code> in compressed-row mode. Writes to existing elements of a
+ * view go straight to the matrix. The first operation that would change the view's
+ * non-zero structure, e.g. setting an element that is not stored, first copies the
+ * slice into arrays of the vector's own; from then on the vector is an ordinary,
+ * detached vector and its changes no longer show in the matrix.
+ */
+public class PackedFeatureVector extends FeatureVector {
+
+    private static final int[] EMPTY_INDICES = new int[0];
+    private static final double[] EMPTY_VALUES = new double[0];
+
+    private int[] indices;
+    private double[] values;
+    private int start;
+    private int end;
+    private int length;
+    private boolean isView;
+
+    /**
+     * Initializes a vector containing all zeros of a given length.
+     * @param length the length of the vector
+     */
+    public PackedFeatureVector(int length) {
+        this(EMPTY_INDICES, EMPTY_VALUES, 0, 0, length, false);
+    }
+
+    /**
+     * Initializes a vector from parallel arrays of indices and values. The arrays need
+     * not be sorted; if an index appears more than once, its last value is kept, as it
+     * would be with <code>Map.put</code>. Zero values are dropped.
+     * @param length the length of the vector
+     * @param indices the indices of the non-zero elements
+     * @param values the values at the corresponding indices
+     */
+    public PackedFeatureVector(int length, int[] indices, double[] values) {
+        this(length, indices, values, indices.length);
+    }
+
+    /**
+     * Initializes a vector from the first <code>count</code> entries of parallel arrays
+     * of indices and values. See {@link #PackedFeatureVector(int, int[], double[])}.
+     * @param length the length of the vector
+     * @param indices the indices of the non-zero elements
+     * @param values the values at the corresponding indices
+     * @param count the number of entries of the arrays to use
+     */
+    public PackedFeatureVector(int length, int[] indices, double[] values, int count) {
+        this(length, indices, values, count, false);
+    }
+
+    private PackedFeatureVector(int length, int[] indices, double[] values, int count, boolean sumDuplicates) {
+        if (indices.length < count || values.length < count)
+            throw new IllegalArgumentException("Index and value arrays are shorter than count");
+        this.length = length;
+        this.indices = Arrays.copyOf(indices, count);
+        this.values = Arrays.copyOf(values, count);
+        this.end = count;
+        this.isView = false;
+        normalize(sumDuplicates);
+    }
+
+    /**
+     * Builds a vector from the first <code>count</code> entries of parallel arrays of
+     * indices and values, like {@link #PackedFeatureVector(int, int[], double[], int)},
+     * except that the values of an index that appears more than once are summed rather
+     * than overwritten. Useful for accumulating counts or hashed features.
+     * @param length the length of the vector
+     * @param indices the indices of the values, possibly repeated
+     * @param values the values at the corresponding indices
+     * @param count the number of entries of the arrays to use
+     * @return a vector holding the sum of the values at each index
+     */
+    public static PackedFeatureVector summing(int length, int[] indices, double[] values, int count) {
+        return new PackedFeatureVector(length, indices, values, count, true);
+    }
+
+    public PackedFeatureVector(int length, Map<Integer, Double> indexMap) {
+        this.length = length;
+        this.indices = new int[indexMap.size()];
+        this.values = new double[indexMap.size()];
+        this.isView = false;
+        for (Map.Entry<Integer, Double> pair : indexMap.entrySet()) {
+            indices[end] = pair.getKey();
+            values[end] = pair.getValue();
+            end++;
+        }
+        normalize(false);
+    }
+
+    public PackedFeatureVector(double[] vector) {
+        this.length = vector.length;
+        this.isView = false;
+        int count = 0;
+        for (double value : vector)
+            if (value != 0)
+                count++;
+
+        indices = new int[count];
+        values = new double[count];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] != 0) {
+                indices[end] = i;
+                values[end] = vector[i];
+                end++;
+            }
+        }
+    }
+
+    /**
+     * Wraps already sorted, duplicate-free arrays without copying them.
+     */
+    private PackedFeatureVector(int[] indices, double[] values, int start, int end, int length, boolean isView) {
+        this.indices = indices;
+        this.values = values;
+        this.start = start;
+        this.end = end;
+        this.length = length;
+        this.isView = isView;
+    }
+
+    /**
+     * Creates a view of the entries <code>[start, end)</code> of the given arrays, which
+     * must be sorted by index. Used by <code>FeatureMatrix</code> to hand out rows.
+     */
+    static PackedFeatureVector view(int length, int[] indices, double[] values, int start, int end) {
+        return new PackedFeatureVector(indices, values, start, end, length, true);
+    }
+
+    /**
+     * Sorts the entries by index, resolves duplicate indices either by summing their
+     * values or in favor of the last occurrence, drops zeros and validates the bounds.
+     */
+    private void normalize(boolean sumDuplicates) {
+        boolean sorted = true;
+        for (int k = 1; k < end && sorted; k++)
+            sorted = indices[k - 1] < indices[k];
+
+        if (!sorted) {
+            // sorting (index, position) pairs packed into longs keeps duplicates in
+            // insertion order without boxing
+            long[] order = new long[end];
+            for (int k = 0; k < end; k++)
+                order[k] = ((long) indices[k] << 32) | k;
+            Arrays.sort(order);
+
+            int[] sortedIndices = new int[end];
+            double[] sortedValues = new double[end];
+            int count = 0;
+            for (long entry : order) {
+                int k = (int) entry;
+                if (count > 0 && sortedIndices[count - 1] == indices[k]) {
+                    if (sumDuplicates) {
+                        sortedValues[count - 1] += values[k];
+                        continue;
+                    }
+                    count--;
+                }
+                sortedIndices[count] = indices[k];
+                sortedValues[count] = values[k];
+                count++;
+            }
+            indices = sortedIndices;
+            values = sortedValues;
+            end = count;
+        }
+
+        int count = 0;
+        for (int k = 0; k < end; k++) {
+            if (values[k] == 0)
+                continue;
+            indices[count] = indices[k];
+            values[count] = values[k];
+            count++;
+        }
+        end = count;
+
+        if (end > 0 && (indices[0] < 0 || indices[end - 1] >= length))
+            throw new IndexOutOfBoundsException("Index out of range for vector of length " + length);
+    }
+
+    /**
+     * Finds the position of an index in the packed arrays.
+     * @param index a vector index
+     * @return the position of the index, or <code>-(insertion point) - 1</code> if the
+     * value at the index is not stored
+     */
+    private int position(int index) {
+        return Arrays.binarySearch(indices, start, end, index);
+    }
+
+    /**
+     * Turns a view into an ordinary vector by copying its slice into arrays of its own.
+     * Called before any change to the non-zero structure.
+     */
+    private void detach() {
+        if (!isView)
+            return;
+        indices = Arrays.copyOfRange(indices, start, end);
+        values = Arrays.copyOfRange(values, start, end);
+        end -= start;
+        start = 0;
+        isView = false;
+    }
+
+    /**
+     * Replaces the contents of this vector by the sorted arrays of another.
+     */
+    private void replaceWith(int[] newIndices, double[] newValues, int count) {
+        isView = false;
+        indices = newIndices;
+        values = newValues;
+        start = 0;
+        end = count;
+    }
+
+    @Override
+    public double dot(FeatureVector other) {
+        checkVectorSize(other);
+        double dotProduct = 0.0;
+
+        if (other instanceof PackedFeatureVector) {
+            PackedFeatureVector packed = (PackedFeatureVector) other;
+            int a = start, b = packed.start;
+            while (a < end && b < packed.end) {
+                int left = indices[a], right = packed.indices[b];
+                if (left == right)
+                    dotProduct += values[a++] * packed.values[b++];
+                else if (left < right)
+                    a++;
+                else
+                    b++;
+            }
+            return dotProduct;
+        }
+
+        for (int k = start; k < end; k++)
+            dotProduct += values[k] * other.get(indices[k]);
+        return dotProduct;
+    }
+
+    @Override
+    public FeatureVector addition(FeatureVector other) {
+        checkVectorSize(other);
+        if (other instanceof PackedFeatureVector)
+            return merge((PackedFeatureVector) other, 1.0);
+
+        double[] retVector = other.getVector().clone();
+        for (int k = start; k < end; k++)
+            retVector[indices[k]] += values[k];
+        return new SparseFeatureVector(retVector);
+    }
+
+    @Override
+    public FeatureVector addition(double scalar) {
+        double[] retVector = new double[length];
+        Arrays.fill(retVector, scalar);
+        for (int k = start; k < end; k++)
+            retVector[indices[k]] += values[k];
+        return new SparseFeatureVector(retVector);
+    }
+
+    @Override
+    public void additionInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        PackedFeatureVector packed = other instanceof PackedFeatureVector
+                ? (PackedFeatureVector) other
+                : new PackedFeatureVector(other.getVector());
+        PackedFeatureVector sum = merge(packed, 1.0);
+        replaceWith(sum.indices, sum.values, sum.end);
+    }
+
+    @Override
+    public void additionInPlace(double scalar) {
+        PackedFeatureVector sum = new PackedFeatureVector(addition(scalar).getVector());
+        replaceWith(sum.indices, sum.values, sum.end);
+    }
+
+    @Override
+    public FeatureVector subtract(FeatureVector other) {
+        checkVectorSize(other);
+        if (other instanceof PackedFeatureVector)
+            return merge((PackedFeatureVector) other, -1.0);
+
+        double[] retVector = new double[length];
+        for (int i = 0; i < length; i++)
+            retVector[i] = -other.get(i);
+        for (int k = start; k < end; k++)
+            retVector[indices[k]] += values[k];
+        return new SparseFeatureVector(retVector);
+    }
+
+    @Override
+    public void subtractInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        PackedFeatureVector packed = other instanceof PackedFeatureVector
+                ? (PackedFeatureVector) other
+                : new PackedFeatureVector(other.getVector());
+        PackedFeatureVector difference = merge(packed, -1.0);
+        replaceWith(difference.indices, difference.values, difference.end);
+    }
+
+    /**
+     * Computes <code>this + sign * other</code> by merging the two sorted index arrays.
+     */
+    private PackedFeatureVector merge(PackedFeatureVector other, double sign) {
+        int capacity = nonZeroCount() + other.nonZeroCount();
+        int[] retIndices = new int[capacity];
+        double[] retValues = new double[capacity];
+        int a = start, b = other.start, count = 0;
+
+        while (a < end || b < other.end) {
+            int left = a < end ? indices[a] : Integer.MAX_VALUE;
+            int right = b < other.end ? other.indices[b] : Integer.MAX_VALUE;
+            double value;
+            if (left == right) {
+                value = values[a++] + sign * other.values[b++];
+            } else if (left < right) {
+                value = values[a++];
+            } else {
+                left = right;
+                value = sign * other.values[b++];
+            }
+            if (value != 0) {
+                retIndices[count] = left;
+                retValues[count] = value;
+                count++;
+            }
+        }
+        return new PackedFeatureVector(retIndices, retValues, 0, count, length, false);
+    }
+
+    /**
+     * @return an owned copy of the non-zero elements with the given values
+     */
+    private PackedFeatureVector withValues(double[] newValues) {
+        int[] newIndices = Arrays.copyOfRange(indices, start, end);
+        return new PackedFeatureVector(length, newIndices, newValues);
+    }
+
+    @Override
+    public PackedFeatureVector multiply(FeatureVector other) {
+        checkVectorSize(other);
+        double[] retValues = new double[nonZeroCount()];
+        for (int k = start; k < end; k++)
+            retValues[k - start] = values[k] * other.get(indices[k]);
+        return withValues(retValues);
+    }
+
+    @Override
+    public PackedFeatureVector multiply(double scalar) {
+        double[] retValues = new double[nonZeroCount()];
+        for (int k = start; k < end; k++)
+            retValues[k - start] = values[k] * scalar;
+        return withValues(retValues);
+    }
+
+    @Override
+    public void multiplyInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int k = start; k < end; k++)
+            values[k] *= other.get(indices[k]);
+        dropZeros();
+    }
+
+    @Override
+    public void multiplyInPlace(double scalar) {
+        for (int k = start; k < end; k++)
+            values[k] *= scalar;
+        dropZeros();
+    }
+
+    /**
+     * Removes the entries that in-place arithmetic has turned into zeros, so that only
+     * non-zero elements stay stored. A view keeps its matrix's structure; its zeros are
+     * skipped by cursors and dropped by the matrix's own arithmetic instead.
+     */
+    private void dropZeros() {
+        if (isView)
+            return;
+        int count = start;
+        for (int k = start; k < end; k++) {
+            if (values[k] == 0)
+                continue;
+            indices[count] = indices[k];
+            values[count] = values[k];
+            count++;
+        }
+        end = count;
+    }
+
+    /**
+     * Divides the non-zero elements of this vector by the corresponding elements of
+     * another. Zeros of this vector are left as they are.
+     * @param other another vector
+     * @return the element-wise quotient
+     */
+    @Override
+    public PackedFeatureVector divide(FeatureVector other) {
+        checkVectorSize(other);
+        double[] retValues = new double[nonZeroCount()];
+        for (int k = start; k < end; k++)
+            retValues[k - start] = values[k] / other.get(indices[k]);
+        return withValues(retValues);
+    }
+
+    @Override
+    public PackedFeatureVector divide(double scalar) {
+        if (scalar == 0)
+            throw new IllegalArgumentException("Argument 'scalar' is 0");
+
+        double[] retValues = new double[nonZeroCount()];
+        for (int k = start; k < end; k++)
+            retValues[k - start] = values[k] / scalar;
+        return withValues(retValues);
+    }
+
+    /**
+     * Divides the non-zero elements of this vector by the corresponding elements of
+     * another. Zeros of this vector are left as they are.
+     * @param other another vector
+     */
+    @Override
+    public void divideInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        for (int k = start; k < end; k++)
+            values[k] /= other.get(indices[k]);
+        dropZeros();
+    }
+
+    @Override
+    public void divideInPlace(double scalar) {
+        if (scalar == 0)
+            throw new IllegalArgumentException("Argument 'scalar' is 0");
+        for (int k = start; k < end; k++)
+            values[k] /= scalar;
+        dropZeros();
+    }
+
+    @Override
+    public FeatureVector pow(FeatureVector other) {
+        checkVectorSize(other);
+        double[] retVector = new double[length];
+        for (int i = 0; i < length; i++)
+            retVector[i] = Math.pow(get(i), other.get(i));
+        return new PackedFeatureVector(retVector);
+    }
+
+    @Override
+    public FeatureVector pow(double scalar) {
+        if (scalar <= 0)
+            return new SparseFeatureVector(getVector()).pow(scalar);
+
+        double[] retValues = new double[nonZeroCount()];
+        for (int k = start; k < end; k++)
+            retValues[k - start] = Math.pow(values[k], scalar);
+        return withValues(retValues);
+    }
+
+    @Override
+    public void powInPlace(double scalar) {
+        if (scalar <= 0) {
+            super.powInPlace(scalar);
+            return;
+        }
+        for (int k = start; k < end; k++)
+            values[k] = Math.pow(values[k], scalar);
+        dropZeros();
+    }
+
+    @Override
+    public void forEachNonZero(NonZeroConsumer consumer) {
+        for (int k = start; k < end; k++) {
+            if (values[k] != 0)
+                consumer.accept(indices[k], values[k]);
+        }
+    }
+
+    @Override
+    public NonZeroCursor nonZeroCursor(NonZeroCursor cursor) {
+        cursor.reset(indices, values, start, end);
+        return cursor;
+    }
+
+    @Override
+    public double sum() {
+        double sum = 0.0;
+        for (int k = start; k < end; k++)
+            sum += values[k];
+        return sum;
+    }
+
+    @Override
+    public double product() {
+        if (nonZeroCount() < length)
+            return 0.0;
+        double prod = 1.0;
+        for (int k = start; k < end; k++)
+            prod *= values[k];
+        return prod;
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Double))
+            return false;
+        double target = (Double) o;
+        if (target == 0 && nonZeroCount() < length)
+            return true;
+        for (int k = start; k < end; k++)
+            if (values[k] == target)
+                return true;
+        return false;
+    }
+
+    @Override
+    public double get(int index) {
+        int position = position(index);
+        return position >= 0 ? values[position] : 0.0;
+    }
+
+    @Override
+    public void set(int index, double val) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException();
+
+        int position = position(index);
+        if (position >= 0) {
+            if (val != 0 || isView) {
+                values[position] = val;
+            } else {
+                System.arraycopy(indices, position + 1, indices, position, end - position - 1);
+                System.arraycopy(values, position + 1, values, position, end - position - 1);
+                end--;
+            }
+            return;
+        }
+
+        if (val == 0)
+            return;
+
+        if (isView) {
+            detach();
+            position = position(index);
+        }
+        position = -position - 1;
+        if (end == indices.length) {
+            int capacity = Math.max(4, end + (end >> 1));
+            indices = Arrays.copyOf(indices, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(indices, position, indices, position + 1, end - position);
+        System.arraycopy(values, position, values, position + 1, end - position);
+        indices[position] = index;
+        values[position] = val;
+        end++;
+    }
+
+    @Override
+    public SparseFeatureVector changeState() {
+        return sparsify();
+    }
+
+    public SparseFeatureVector sparsify() {
+        return new SparseFeatureVector(getVector());
+    }
+
+    @Override
+    public void update(FeatureVector other) {
+        checkVectorSize(other);
+        PackedFeatureVector packed = other instanceof PackedFeatureVector
+                ? (PackedFeatureVector) other
+                : new PackedFeatureVector(other.getVector());
+
+        if (isView && storesAll(packed)) {
+            // the new values fit the row's non-zero structure, so they are written
+            // through to the matrix
+            Arrays.fill(values, start, end, 0.0);
+            for (int k = packed.start; k < packed.end; k++)
+                values[position(packed.indices[k])] = packed.values[k];
+            return;
+        }
+        replaceWith(Arrays.copyOfRange(packed.indices, packed.start, packed.end),
+                Arrays.copyOfRange(packed.values, packed.start, packed.end),
+                packed.nonZeroCount());
+    }
+
+    /**
+     * @return whether every index of <code>other</code> is stored in this vector
+     */
+    private boolean storesAll(PackedFeatureVector other) {
+        for (int k = other.start; k < other.end; k++)
+            if (position(other.indices[k]) < 0)
+                return false;
+        return true;
+    }
+
+    @Override
+    public Iterator<Double> iterator() {
+        return new PackedIterator();
+    }
+
+    @Override
+    public double[] getVector() {
+        double[] vector = new double[length];
+        for (int k = start; k < end; k++)
+            vector[indices[k]] = values[k];
+        return vector;
+    }
+
+    /**
+     * @return the number of stored elements of the vector
+     */
+    public int nonZeroCount() {
+        return end - start;
+    }
+
+    /**
+     * @return whether this vector is a view of a row of a <code>FeatureMatrix</code>,
+     * i.e. has not been detached by a change to its non-zero structure
+     */
+    public boolean isView() {
+        return isView;
+    }
+
+    @Override
+    public List<Double> nonZeroValues() {
+        ArrayList<Double> retList = new ArrayList<>(nonZeroCount());
+        for (int k = start; k < end; k++)
+            if (values[k] != 0)
+                retList.add(values[k]);
+        return retList;
+    }
+
+    @Override
+    public List<Integer> nonZeroIndices() {
+        ArrayList<Integer> retList = new ArrayList<>(nonZeroCount());
+        for (int k = start; k < end; k++)
+            if (values[k] != 0)
+                retList.add(indices[k]);
+        return retList;
+    }
+
+    @Override
+    public void zero() {
+        if (isView)
+            Arrays.fill(values, start, end, 0.0);
+        else
+            end = 0;
+    }
+
+    public static PackedFeatureVector randomInitialize(int length, double sparsity) {
+        if (sparsity < 0 || sparsity > 1)
+            throw new IllegalArgumentException("sparsity must be between 0 and 1");
+
+        int numNonZero = (int) ((1 - sparsity) * length);
+        int[] randIndices = randomIndices(length, numNonZero);
+        double[] randValues = new double[numNonZero];
+        for (int i = 0; i < numNonZero; i++)
+            randValues[i] = Math.random();
+        return new PackedFeatureVector(randIndices, randValues, 0, numNonZero, length, false);
+    }
+
+    /**
+     * Draws <code>count</code> distinct indices below <code>length</code>.
+     * @return the indices in ascending order
+     */
+    static int[] randomIndices(int length, int count) {
+        HashSet<Integer> chosen = new HashSet<>(count * 2);
+        int[] randIndices = new int[count];
+        for (int i = 0; i < count; i++) {
+            int randomIndex = ThreadLocalRandom.current().nextInt(0, length);
+            while (!chosen.add(randomIndex))
+                randomIndex = ThreadLocalRandom.current().nextInt(0, length);
+            randIndices[i] = randomIndex;
+        }
+        Arrays.sort(randIndices);
+        return randIndices;
+    }
+
+    private class PackedIterator implements Iterator<Double> {
+
+        private int currentIndex = 0;
+        private int position = start;
+
+        @Override
+        public boolean hasNext() { return currentIndex < length; }
+
+        @Override
+        public Double next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int index = currentIndex++;
+            if (position < end && indices[position] == index)
+                return values[position++];
+            return 0.0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package Vectors;
+
+/**
+ * Plain loops implementing {@link DenseKernels}, used when the Vector API is not
+ * available.
+ */
+class ScalarKernels extends DenseKernels {
+
+    @Override
+    boolean isVectorized() {
+        return false;
+    }
+
+    @Override
+    void add(double[] a, double[] b, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] + b[i];
+    }
+
+    @Override
+    void add(double[] a, double scalar, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] + scalar;
+    }
+
+    @Override
+    void subtract(double[] a, double[] b, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] - b[i];
+    }
+
+    @Override
+    void multiply(double[] a, double[] b, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] * b[i];
+    }
+
+    @Override
+    void multiply(double[] a, double scalar, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] * scalar;
+    }
+
+    @Override
+    void divide(double[] a, double[] b, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] / b[i];
+    }
+
+    @Override
+    void divide(double[] a, double scalar, double[] out, int from, int to) {
+        for (int i = from; i < to; i++)
+            out[i] = a[i] / scalar;
+    }
+
+    @Override
+    void axpy(double scalar, double[] x, double[] y, int from, int to) {
+        for (int i = from; i < to; i++)
+            y[i] += scalar * x[i];
+    }
+
+    @Override
+    double dot(double[] a, double[] b, int from, int to) {
+        double dotProduct = 0.0;
+        for (int i = from; i < to; i++)
+            dotProduct += a[i] * b[i];
+        return dotProduct;
+    }
+
+    @Override
+    double sum(double[] a, int from, int to) {
+        double sum = 0.0;
+        for (int i = from; i < to; i++)
+            sum += a[i];
+        return sum;
+    }
+
+    @Override
+    double sumOfSquares(double[] a, int from, int to) {
+        double sum = 0.0;
+        for (int i = from; i < to; i++)
+            sum += a[i] * a[i];
+        return sum;
+    }
+}
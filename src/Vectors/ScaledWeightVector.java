@@ -0,0 +1,196 @@
+package Vectors;
+
+import java.util.Arrays;
+
+/**
+ * A <code>WeightVector</code> stored as a raw array and a single scale factor, where the
+ * value at index <code>i</code> is <code>scale * raw[i]</code>. Multiplying or dividing
+ * the whole vector by a scalar only changes the scale, so it takes constant time
+ * instead of a pass over every weight; this is what makes weight decay and
+ * regularization affordable on large vocabularies. The scale is folded back into the
+ * raw values only when it drifts far enough towards under- or overflow to cost
+ * precision.
+ */
+public class ScaledWeightVector extends ExternalWeightVector {
+
+    private static final double MIN_SCALE = 1e-100;
+    private static final double MAX_SCALE = 1e100;
+
+    private final double[] raw;
+    private double scale;
+
+    public ScaledWeightVector(int length) {
+        this(new double[length], 0.0);
+    }
+
+    public ScaledWeightVector(double[] vector, double bias) {
+        super(bias);
+        this.raw = vector;
+        this.scale = 1.0;
+    }
+
+    /**
+     * Copies a weight vector into the scaled representation.
+     * @param weights the weights to copy
+     * @return a scaled copy of <code>weights</code>, with the same bias
+     */
+    public static ScaledWeightVector copyOf(WeightVector weights) {
+        return new ScaledWeightVector(weights.getVector().clone(), weights.getBias());
+    }
+
+    /**
+     * Folds the scale into the raw values if it is close to under- or overflowing.
+     */
+    private void checkScale() {
+        double magnitude = Math.abs(scale);
+        if (magnitude < MIN_SCALE || magnitude > MAX_SCALE)
+            renormalize();
+    }
+
+    /**
+     * Multiplies every raw value by the scale and resets the scale to one. Takes time
+     * proportional to the length of the vector.
+     */
+    public void renormalize() {
+        if (scale == 1.0)
+            return;
+        KERNELS.multiply(raw, scale, raw, 0, raw.length);
+        scale = 1.0;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public int size() {
+        return raw.length;
+    }
+
+    @Override
+    public double get(int index) {
+        return scale * raw[index];
+    }
+
+    @Override
+    public void set(int index, double val) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException();
+        raw[index] = val / scale;
+    }
+
+    @Override
+    public double dot(FeatureVector other) {
+        checkVectorSize(other);
+        if (isHeapBacked(other))
+            return scale * KERNELS.dot(raw, other.getVector(), 0, raw.length);
+
+        double dotProduct = 0.0;
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            dotProduct += raw[cursor.index()] * cursor.value();
+        return scale * dotProduct;
+    }
+
+    @Override
+    public void scaledAdditionInPlace(double scalar, FeatureVector other) {
+        checkVectorSize(other);
+        if (scalar == 0)
+            return;
+        double rawScalar = scalar / scale;
+        if (isHeapBacked(other)) {
+            KERNELS.axpy(rawScalar, other.getVector(), raw, 0, raw.length);
+            return;
+        }
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            raw[cursor.index()] += rawScalar * cursor.value();
+    }
+
+    @Override
+    public void additionInPlace(FeatureVector other) {
+        scaledAdditionInPlace(1.0, other);
+    }
+
+    @Override
+    public void subtractInPlace(FeatureVector other) {
+        scaledAdditionInPlace(-1.0, other);
+    }
+
+    @Override
+    public void additionInPlace(double scalar) {
+        KERNELS.add(raw, scalar / scale, raw, 0, raw.length);
+    }
+
+    /**
+     * Multiplies every value by a scalar in constant time.
+     * @param scalar a given scalar
+     */
+    @Override
+    public void multiplyInPlace(double scalar) {
+        if (scalar == 0) {
+            zero();
+            return;
+        }
+        scale *= scalar;
+        checkScale();
+    }
+
+    /**
+     * Divides every value by a scalar in constant time.
+     * @param scalar a given scalar
+     */
+    @Override
+    public void divideInPlace(double scalar) {
+        if (scalar == 0)
+            throw new IllegalArgumentException("Argument 'scalar' is 0");
+        scale /= scalar;
+        checkScale();
+    }
+
+    @Override
+    public void powInPlace(double scalar) {
+        renormalize();
+        KERNELS.pow(raw, scalar, raw, 0, raw.length);
+    }
+
+    @Override
+    public void powInPlace(FeatureVector other) {
+        renormalize();
+        KERNELS.pow(raw, other.getVector(), raw, 0, raw.length);
+    }
+
+    @Override
+    public double sum() {
+        return scale * KERNELS.sum(raw, 0, raw.length);
+    }
+
+    @Override
+    public double euclideanLength() {
+        return Math.abs(scale) * Math.sqrt(KERNELS.sumOfSquares(raw, 0, raw.length));
+    }
+
+    @Override
+    public double[] getVector() {
+        double[] vector = new double[raw.length];
+        KERNELS.multiply(raw, scale, vector, 0, raw.length);
+        return vector;
+    }
+
+    @Override
+    public void update(FeatureVector other) {
+        if (!isHeapBacked(other)) {
+            super.update(other);
+            return;
+        }
+        checkVectorSize(other);
+        System.arraycopy(other.getVector(), 0, raw, 0, raw.length);
+        scale = 1.0;
+    }
+
+    @Override
+    public void zero() {
+        Arrays.fill(raw, 0.0);
+        scale = 1.0;
+    }
+}
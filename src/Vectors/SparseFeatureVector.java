@@ -3,6 +3,8 @@ import java.util.*;
 
 public class SparseFeatureVector extends FeatureVector {
 
+    static final DenseKernels KERNELS = DenseKernels.get();
+
     private double[] vector;
     private final boolean isCompressed = false;
 
@@ -24,24 +26,49 @@ public class SparseFeatureVector extends FeatureVector {
         this.vector = vector;
     }
 
+    @Override
+    public double dot(FeatureVector other) {
+        checkVectorSize(other);
+        if (!isHeapBacked(other))
+            return other.dot(this);     // let the sparser side drive the traversal
+        return KERNELS.dot(vector, other.getVector(), 0, vector.length);
+    }
+
+    /**
+     * Tells whether <code>getVector()</code> returns a vector's own heap array rather than
+     * a copy, i.e. whether its values can be handed to the dense kernels for free. Weight
+     * vectors stored off-heap or in reduced precision only inherit the array contract and
+     * would copy every value on each call.
+     */
+    static boolean isHeapBacked(FeatureVector vector) {
+        return vector instanceof SparseFeatureVector && !(vector instanceof ExternalWeightVector);
+    }
+
     public double dot(CompressedFeatureVector other) {
         return other.dot(this);
     }
 
+    public double dot(PackedFeatureVector other) {
+        return other.dot(this);
+    }
+
+    @Override
+    public double euclideanLength() {
+        return Math.sqrt(KERNELS.sumOfSquares(vector, 0, vector.length));
+    }
+
     @Override
     public FeatureVector addition(FeatureVector other) {
         checkVectorSize(other);
         double[] retVector = new double[this.size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = this.get(i) +  other.get(i);
+        KERNELS.add(getVector(), other.getVector(), retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
     @Override
     public FeatureVector addition(double scalar) {
         double[] retVector = new double[this.size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = this.get(i) + scalar;
+        KERNELS.add(getVector(), scalar, retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
@@ -49,8 +76,7 @@ public class SparseFeatureVector extends FeatureVector {
     public FeatureVector subtract(FeatureVector other) {
         checkVectorSize(other);
         double[] retVector = new double[this.size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = this.get(i) - other.get(i);
+        KERNELS.subtract(getVector(), other.getVector(), retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
@@ -58,8 +84,7 @@ public class SparseFeatureVector extends FeatureVector {
     public FeatureVector multiply(FeatureVector other) {
         checkVectorSize(other);
         double[] retVector = new double[this.size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = this.get(i) * other.get(i);
+        KERNELS.multiply(getVector(), other.getVector(), retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
@@ -70,8 +95,7 @@ public class SparseFeatureVector extends FeatureVector {
     @Override
     public FeatureVector multiply(double scalar) {
         double[] retVector = new double[this.size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = this.get(i) * scalar;
+        KERNELS.multiply(getVector(), scalar, retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
@@ -79,16 +103,14 @@ public class SparseFeatureVector extends FeatureVector {
     public FeatureVector divide(FeatureVector other) {
         checkVectorSize(other);
         double[] retVector = new double[size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = this.get(i) / other.get(i);
+        KERNELS.divide(getVector(), other.getVector(), retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
     @Override
     public FeatureVector divide(double scalar) {
         double[] retVector = new double[size()];
-        for (int i = 0; i < size(); i++)
-            retVector[i] = get(i) / scalar;
+        KERNELS.divide(getVector(), scalar, retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
@@ -96,23 +118,96 @@ public class SparseFeatureVector extends FeatureVector {
     public FeatureVector pow(FeatureVector other) {
         checkVectorSize(other);
         double[] retVector = new double[size()];
-        for (int i = 0; i < size(); i++)
-            set(i, Math.pow(get(i), other.get(i)));
+        KERNELS.pow(getVector(), other.getVector(), retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
     @Override
     public FeatureVector pow(double scalar) {
         double[] retVector = new double[size()];
-        for (int i = 0; i < this.size(); i++)
-            retVector[i] = Math.pow(this.get(i), scalar);
+        KERNELS.pow(getVector(), scalar, retVector, 0, retVector.length);
         return new SparseFeatureVector(retVector);
     }
 
+    @Override
+    public void additionInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        if (!isHeapBacked(other)) {
+            NonZeroCursor cursor = other.nonZeroCursor();
+            while (cursor.next())
+                vector[cursor.index()] += cursor.value();
+            return;
+        }
+        KERNELS.add(vector, other.getVector(), vector, 0, vector.length);
+    }
+
+    @Override
+    public void additionInPlace(double scalar) {
+        KERNELS.add(vector, scalar, vector, 0, vector.length);
+    }
+
+    @Override
+    public void subtractInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        if (!isHeapBacked(other)) {
+            NonZeroCursor cursor = other.nonZeroCursor();
+            while (cursor.next())
+                vector[cursor.index()] -= cursor.value();
+            return;
+        }
+        KERNELS.subtract(vector, other.getVector(), vector, 0, vector.length);
+    }
+
+    @Override
+    public void multiplyInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        KERNELS.multiply(vector, other.getVector(), vector, 0, vector.length);
+    }
+
+    @Override
+    public void multiplyInPlace(double scalar) {
+        KERNELS.multiply(vector, scalar, vector, 0, vector.length);
+    }
+
+    @Override
+    public void divideInPlace(FeatureVector other) {
+        checkVectorSize(other);
+        KERNELS.divide(vector, other.getVector(), vector, 0, vector.length);
+    }
+
+    @Override
+    public void divideInPlace(double scalar) {
+        KERNELS.divide(vector, scalar, vector, 0, vector.length);
+    }
+
+    @Override
     public void powInPlace(FeatureVector other) {
         checkVectorSize(other);
-        for (int i = 0; i < size(); i++)
-            set(i, Math.pow(get(i), other.get(i)));
+        KERNELS.pow(vector, other.getVector(), vector, 0, vector.length);
+    }
+
+    @Override
+    public void powInPlace(double scalar) {
+        KERNELS.pow(vector, scalar, vector, 0, vector.length);
+    }
+
+    @Override
+    public double sum() {
+        return KERNELS.sum(vector, 0, vector.length);
+    }
+
+    @Override
+    public void forEachNonZero(NonZeroConsumer consumer) {
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] != 0)
+                consumer.accept(i, vector[i]);
+        }
+    }
+
+    @Override
+    public NonZeroCursor nonZeroCursor(NonZeroCursor cursor) {
+        cursor.reset(vector);
+        return cursor;
     }
 
     @Override
@@ -171,8 +266,19 @@ public class SparseFeatureVector extends FeatureVector {
     }
 
     public Iterator<Double> iterator() {
-        List array = Arrays.asList(vector);
-        return (Iterator<Double>) array.iterator();
+        return new Iterator<Double>() {
+            private int currentIndex = 0;
+
+            @Override
+            public boolean hasNext() { return currentIndex < vector.length; }
+
+            @Override
+            public Double next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return vector[currentIndex++];
+            }
+        };
     }
 
     public static SparseFeatureVector randomInitialize(int length) {
@@ -33,6 +33,28 @@ public class WeightVector extends SparseFeatureVector {
         this.bias = bias;
     }
 
+    /**
+     * Adds a scaled vector to the weights in place, i.e. <code>w += scalar * other</code>.
+     * Only the non-zero elements of <code>other</code> are visited, so an update with a
+     * sparse input costs time proportional to its number of non-zeros rather than to the
+     * length of the weights. <code>other</code> is left unchanged.
+     * @param scalar the factor by which to scale <code>other</code>
+     * @param other the vector to add
+     */
+    public void scaledAdditionInPlace(double scalar, FeatureVector other) {
+        checkVectorSize(other);
+        if (scalar == 0)
+            return;
+        double[] weights = getVector();
+        if (isHeapBacked(other)) {
+            KERNELS.axpy(scalar, other.getVector(), weights, 0, weights.length);
+            return;
+        }
+        NonZeroCursor cursor = other.nonZeroCursor();
+        while (cursor.next())
+            weights[cursor.index()] += scalar * cursor.value();
+    }
+
     public double getBias() {
         return bias;
     }